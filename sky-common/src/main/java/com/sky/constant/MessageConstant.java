@@ -24,6 +24,16 @@ public class MessageConstant {
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
     public static final String ALREADY_EXISTS = "已存在";
+    public static final String SHOP_ADDRESS_PARSE_FAILED = "店铺地址解析失败";
+    public static final String USER_ADDRESS_PARSE_FAILED = "收货地址解析失败";
+    public static final String DELIVERY_ROUTE_FAILED = "配送路线规划失败";
+    public static final String OUT_OF_DELIVERY_RANGE = "超出配送范围";
+    public static final String SHOP_IS_CLOSED = "店铺已打烊，暂不接单";
+    public static final String ORDER_CURSOR_INVALID = "分页游标无效";
+    public static final String ORDER_SEARCH_INDEX_REBUILDING = "订单搜索索引正在重建";
+    public static final String ORDER_NUMBER_UNAVAILABLE = "订单号暂时无法生成，请稍后重试";
+    public static final String REPORT_DATE_RANGE_INVALID = "开始日期不能晚于结束日期";
+    public static final String REPORT_DATE_RANGE_TOO_LONG = "导出时间跨度不能超过366天";
 
     public static final String FILE_NOT_EMPTY = "文件不能为空";
     public static final String FILE_NAME_INVALID = "文件名无效";
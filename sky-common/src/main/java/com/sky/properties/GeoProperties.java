@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.geo")
+@Data
+public class GeoProperties {
+
+    private boolean stub = false; //是否使用离线的模拟地理编码(测试环境使用，不访问百度地图)
+    private int localMaxSize = 2048; //进程内缓存的最大条数
+    private long coordinateTtl = 7 * 24 * 60 * 60 * 1000L; //地址坐标缓存过期时间(毫秒)，默认7天
+    private long distanceTtl = 24 * 60 * 60 * 1000L; //配送距离缓存过期时间(毫秒)，默认1天
+    private int maxDistance = 5000; //最大配送距离(米)
+
+}
@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-number")
+@Data
+public class OrderNumberProperties {
+
+    private long datacenterId = 0; //数据中心id(0~31)
+    private long workerId = -1; //机器id(0~31)，小于0时从redis中租用一个未被占用的机器id
+    private long leaseTtl = 60 * 1000L; //机器id租约时间(毫秒)，由定时任务续租
+    private long maxBackwardMs = 5; //允许等待的时钟回拨时间(毫秒)，超过时沿用上次的时间戳继续生成
+    private int bufferSize = 0; //预生成订单号的缓冲区大小，0表示不预生成
+
+}
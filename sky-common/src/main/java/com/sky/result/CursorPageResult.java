@@ -0,0 +1,24 @@
+package com.sky.result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 封装游标分页查询结果
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResult implements Serializable {
+
+    private long total; //总记录数，为缓存的近似值
+
+    private List records; //当前页数据集合
+
+    private String nextCursor; //查询下一页时传入的游标，没有下一页时为null
+
+}
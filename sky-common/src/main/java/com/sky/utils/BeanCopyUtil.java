@@ -0,0 +1,109 @@
+package com.sky.utils;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对象属性拷贝工具类
+ * 每一对 源类型 -> 目标类型 第一次拷贝时解析出需要拷贝的属性，生成getter/setter的MethodHandle并缓存，之后拷贝不再查找属性和反射调用
+ * 拷贝规则与BeanUtils.copyProperties(Spring 5.3)一致：只拷贝名称相同且类型兼容的属性，源对象中为null的属性也会拷贝
+ * 类型兼容按ResolvableType判断，包括泛型参数(如List<Long>不会拷贝到List<String>)，泛型无法解析时只比较原始类型(包括基本类型与包装类型)
+ */
+public class BeanCopyUtil {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final Map<Class<?>, Map<Class<?>, Copier>> COPIER_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 拷贝属性
+     * @param source 源对象
+     * @param target 目标对象
+     */
+    public static void copyProperties(Object source, Object target) {
+        Copier copier = COPIER_CACHE
+                .computeIfAbsent(source.getClass(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(target.getClass(), k -> new Copier(source.getClass(), k));
+        copier.copy(source, target);
+    }
+
+    /**
+     * 某一对 源类型 -> 目标类型 的属性拷贝器
+     */
+    private static class Copier {
+        private final String[] names;
+        private final MethodHandle[] getters;
+        private final MethodHandle[] setters;
+
+        Copier(Class<?> sourceClass, Class<?> targetClass) {
+            List<String> nameList = new ArrayList<>();
+            List<MethodHandle> getterList = new ArrayList<>();
+            List<MethodHandle> setterList = new ArrayList<>();
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            for (PropertyDescriptor targetPd : BeanUtils.getPropertyDescriptors(targetClass)) {
+                Method writeMethod = targetPd.getWriteMethod();
+                if (writeMethod == null) {
+                    continue;
+                }
+                PropertyDescriptor sourcePd = BeanUtils.getPropertyDescriptor(sourceClass, targetPd.getName());
+                Method readMethod = sourcePd == null ? null : sourcePd.getReadMethod();
+                if (readMethod == null || !isAssignable(readMethod, writeMethod)) {
+                    continue;
+                }
+                try {
+                    if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                        readMethod.setAccessible(true);
+                    }
+                    if (!Modifier.isPublic(writeMethod.getDeclaringClass().getModifiers())) {
+                        writeMethod.setAccessible(true);
+                    }
+                    getterList.add(lookup.unreflect(readMethod).asType(GETTER_TYPE));
+                    setterList.add(lookup.unreflect(writeMethod).asType(SETTER_TYPE));
+                    nameList.add(targetPd.getName());
+                } catch (IllegalAccessException e) {
+                    throw new FatalBeanException("无法访问属性'" + targetPd.getName() + "'的getter/setter", e);
+                }
+            }
+            names = nameList.toArray(new String[0]);
+            getters = getterList.toArray(new MethodHandle[0]);
+            setters = setterList.toArray(new MethodHandle[0]);
+        }
+
+        /**
+         * getter的返回值能否赋值给setter的参数，与BeanUtils.copyProperties的判断相同
+         */
+        private static boolean isAssignable(Method readMethod, Method writeMethod) {
+            ResolvableType sourceType = ResolvableType.forMethodReturnType(readMethod);
+            ResolvableType targetType = ResolvableType.forMethodParameter(writeMethod, 0);
+            if (sourceType.hasUnresolvableGenerics() || targetType.hasUnresolvableGenerics()) {
+                return ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType());
+            }
+            return targetType.isAssignableFrom(sourceType);
+        }
+
+        void copy(Object source, Object target) {
+            for (int i = 0; i < getters.length; i++) {
+                try {
+                    Object value = (Object) getters[i].invokeExact(source);
+                    setters[i].invokeExact(target, value);
+                } catch (Throwable e) {
+                    throw new FatalBeanException("无法拷贝属性'" + names[i] + "'", e);
+                }
+            }
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
@@ -19,14 +29,71 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的HttpClient，连接保持长连接复用，避免每次请求都重新建立TCP和TLS连接
  */
+@Slf4j
 public class HttpClientUtil {
 
     static final  int TIMEOUT_MSEC = 5 * 1000;
 
+    // 连接池最大连接数
+    static final int MAX_TOTAL = 200;
+    // 每个目标主机的最大连接数
+    static final int MAX_PER_ROUTE = 50;
+    // 服务端未指定Keep-Alive时间时，连接的默认保持时间
+    static final long KEEP_ALIVE_MSEC = 30 * 1000;
+
+    private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER;
+    private static final CloseableHttpClient HTTP_CLIENT;
+    private static final ExecutorService ASYNC_EXECUTOR;
+
+    static {
+        CONNECTION_MANAGER = new PoolingHttpClientConnectionManager(KEEP_ALIVE_MSEC * 2, TimeUnit.MILLISECONDS);
+        CONNECTION_MANAGER.setMaxTotal(MAX_TOTAL);
+        CONNECTION_MANAGER.setDefaultMaxPerRoute(MAX_PER_ROUTE);
+        // 连接空闲一段时间后，复用前先检查连接是否可用
+        CONNECTION_MANAGER.setValidateAfterInactivity(2000);
+
+        HTTP_CLIENT = configure(HttpClients.custom()).build();
+
+        // 连接池是共享的，HttpClientBuilder不会为其创建清理线程，这里单独启动一个，定期关闭过期和空闲的连接
+        new IdleConnectionEvictor(CONNECTION_MANAGER, KEEP_ALIVE_MSEC, TimeUnit.MILLISECONDS).start();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ASYNC_EXECUTOR = new ThreadPoolExecutor(4, 32, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000),
+                r -> {
+                    Thread thread = new Thread(r, "http-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 队列已满时由调用线程执行，起到限流作用
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 为HttpClientBuilder设置共享的连接池、超时时间和长连接策略
+     * 其它需要自定义HttpClient的地方(如微信支付)通过该方法复用同一个连接池
+     * @param builder
+     * @return
+     */
+    public static HttpClientBuilder configure(HttpClientBuilder builder) {
+        return builder.setConnectionManager(CONNECTION_MANAGER)
+                // 连接池由本类统一管理，关闭HttpClient时不关闭连接池
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(builderRequestConfig())
+                .setKeepAliveStrategy(new KeepAliveStrategy());
+    }
+
     /**
      * 发送GET方式请求
      * @param url
@@ -34,11 +101,7 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
         String result = "";
-        CloseableHttpResponse response = null;
 
         try{
             URIBuilder builder = new URIBuilder(url);
@@ -52,27 +115,25 @@ public class HttpClientUtil {
             //创建GET请求
             HttpGet httpGet = new HttpGet(uri);
 
-            //发送请求
-            response = httpClient.execute(httpGet);
-
-            //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
-            }
+            //发送请求，只有响应状态为200时才返回响应数据
+            result = execute(httpGet, true);
         }catch (Exception e){
-            e.printStackTrace();
-        }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            log.error("GET请求失败:{}", url, e);
         }
 
         return result;
     }
 
+    /**
+     * 异步发送GET方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        return CompletableFuture.supplyAsync(() -> doGet(url, paramMap), ASYNC_EXECUTOR);
+    }
+
     /**
      * 发送POST方式请求
      * @param url
@@ -81,43 +142,22 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
-
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            // 创建参数列表
-            if (paramMap != null) {
-                List<NameValuePair> paramList = new ArrayList();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
-                }
-                // 模拟表单
-                UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
-                httpPost.setEntity(entity);
-            }
-
-            httpPost.setConfig(builderRequestConfig());
-
-            // 执行http请求
-            response = httpClient.execute(httpPost);
-
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
+
+        // 创建参数列表
+        if (paramMap != null) {
+            List<NameValuePair> paramList = new ArrayList();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
             }
+            // 模拟表单
+            UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
+            httpPost.setEntity(entity);
         }
 
-        return resultString;
+        // 执行http请求
+        return execute(httpPost, false);
     }
 
     /**
@@ -128,47 +168,65 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
-
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            if (paramMap != null) {
-                //构造json格式数据
-                JSONObject jsonObject = new JSONObject();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    jsonObject.put(param.getKey(),param.getValue());
-                }
-                StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
-                //设置请求编码
-                entity.setContentEncoding("utf-8");
-                //设置数据类型
-                entity.setContentType("application/json");
-                httpPost.setEntity(entity);
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
+
+        if (paramMap != null) {
+            //构造json格式数据
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                jsonObject.put(param.getKey(),param.getValue());
             }
+            StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
+            //设置请求编码
+            entity.setContentEncoding("utf-8");
+            //设置数据类型
+            entity.setContentType("application/json");
+            httpPost.setEntity(entity);
+        }
 
-            httpPost.setConfig(builderRequestConfig());
+        // 执行http请求
+        return execute(httpPost, false);
+    }
 
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+    /**
+     * 获取连接池使用情况，pending大于0说明连接池已经饱和，请求在排队等待连接
+     * @return
+     */
+    public static String getPoolStats() {
+        StringBuilder stringBuilder = new StringBuilder("total").append(CONNECTION_MANAGER.getTotalStats());
+        for (HttpRoute route : CONNECTION_MANAGER.getRoutes()) {
+            stringBuilder.append(", ").append(route.getTargetHost().getHostName())
+                    .append(CONNECTION_MANAGER.getStats(route));
+        }
+        return stringBuilder.toString();
+    }
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * 执行请求并记录统计数据
+     * 读取完响应体后关闭响应，连接会归还到连接池中
+     * @param request
+     * @param onlyOk 为true时只有响应状态为200才读取响应数据
+     * @return
+     * @throws IOException
+     */
+    private static String execute(HttpRequestBase request, boolean onlyOk) throws IOException {
+        String host = request.getURI().getHost();
+        long start = System.nanoTime();
+        boolean success = false;
+        try (CloseableHttpResponse response = HTTP_CLIENT.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            success = statusCode < 400;
+            if (onlyOk && statusCode != 200) {
+                EntityUtils.consume(response.getEntity());
+                return "";
             }
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        } finally {
+            HttpMetrics.record(host, System.nanoTime() - start, success);
         }
-
-        return resultString;
     }
+
     private static RequestConfig builderRequestConfig() {
         return RequestConfig.custom()
                 .setConnectTimeout(TIMEOUT_MSEC)
@@ -176,4 +234,14 @@ public class HttpClientUtil {
                 .setSocketTimeout(TIMEOUT_MSEC).build();
     }
 
+    /**
+     * 长连接保持策略：优先使用服务端响应头中的Keep-Alive时间，未指定时使用默认时间
+     */
+    private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : KEEP_ALIVE_MSEC;
+        }
+    }
+
 }
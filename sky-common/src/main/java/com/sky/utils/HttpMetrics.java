@@ -0,0 +1,75 @@
+package com.sky.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 对外HTTP请求的统计数据，按目标主机分别统计请求数、失败数和耗时
+ */
+public class HttpMetrics {
+
+    private static final Map<String, HostStats> HOST_STATS = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次请求
+     * @param host        目标主机
+     * @param costNanos   耗时(纳秒)
+     * @param success     是否成功
+     */
+    public static void record(String host, long costNanos, boolean success) {
+        HostStats stats = HOST_STATS.computeIfAbsent(host, h -> new HostStats());
+        stats.requests.incrementAndGet();
+        if (!success) {
+            stats.errors.incrementAndGet();
+        }
+        stats.totalNanos.addAndGet(costNanos);
+        stats.maxNanos.accumulate(costNanos);
+    }
+
+    /**
+     * 获取所有主机的统计数据
+     * @return
+     */
+    public static Map<String, HostStats> snapshot() {
+        return HOST_STATS;
+    }
+
+    public static class HostStats {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * 平均耗时(毫秒)
+         * @return
+         */
+        public double getAvgMillis() {
+            long count = requests.get();
+            return count == 0 ? 0.0 : totalNanos.get() / 1e6 / count;
+        }
+
+        /**
+         * 最大耗时(毫秒)
+         * @return
+         */
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        public String toString() {
+            return String.format("requests=%d, errors=%d, avg=%.1fms, max=%.1fms",
+                    getRequests(), getErrors(), getAvgMillis(), getMaxMillis());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.sky.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * jwt令牌校验，带有校验结果缓存
+ * 签名秘钥只构建一次；校验通过的令牌按 令牌摘要 -> claims 缓存，缓存在令牌过期时失效，同一令牌再次请求时无需重新解析和验签
+ * 每个请求都要查询缓存，缓存使用ConcurrentHashMap，读取不加锁；缓存已满时先清理过期的令牌，仍然已满则不再缓存新令牌
+ */
+public class JwtVerifier {
+
+    // 缓存已满时两次清理过期令牌的最小间隔(毫秒)
+    private static final long SWEEP_INTERVAL_MSEC = 1000;
+
+    private final Key signingKey;
+    private final int maxSize;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private volatile long lastSweep;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // 缓存命中时不计入以下统计
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong verifyNanos = new AtomicLong();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * @param secretKey jwt秘钥
+     * @param maxSize   最多缓存的令牌数
+     */
+    public JwtVerifier(String secretKey, int maxSize) {
+        this.signingKey = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 校验令牌
+     * @param token
+     * @return 校验通过返回令牌中的claims，令牌格式错误、签名错误或已过期返回null
+     */
+    public Claims verify(String token) {
+        // 格式明显错误(为空或不是 header.payload.signature 三段)的令牌直接拒绝，不进行解析，也不创建异常
+        if (!isWellFormed(token)) {
+            malformed.incrementAndGet();
+            return null;
+        }
+
+        String key = digest(token);
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            if (entry.expireAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.claims;
+            }
+            cache.remove(key, entry);
+        }
+        misses.increment();
+
+        Claims claims;
+        long start = System.nanoTime();
+        try {
+            claims = Jwts.parser()
+                    .setSigningKey(signingKey)
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            return null;
+        } finally {
+            verifications.incrementAndGet();
+            verifyNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        // 缓存到令牌过期为止，没有过期时间的令牌不缓存
+        Date expiration = claims.getExpiration();
+        if (expiration != null && expiration.getTime() > System.currentTimeMillis() && hasRoom()) {
+            cache.put(key, new Entry(claims, expiration.getTime()));
+        }
+        return claims;
+    }
+
+    /**
+     * 输出校验统计数据
+     * @return
+     */
+    public String stats() {
+        long count = verifications.get();
+        return String.format("cache[hits=%d, misses=%d, size=%d], verify[count=%d, failures=%d, malformed=%d, avg=%.3fms]",
+                hits.sum(), misses.sum(), cache.size(),
+                count, failures.get(), malformed.get(), count == 0 ? 0.0 : verifyNanos.get() / 1e6 / count);
+    }
+
+    /**
+     * 缓存未满时返回true；已满时清理过期的令牌(限制清理频率)，清理后仍然已满返回false
+     * @return
+     */
+    private boolean hasRoom() {
+        if (cache.size() < maxSize) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < SWEEP_INTERVAL_MSEC) {
+            return false;
+        }
+        lastSweep = now;
+        cache.values().removeIf(entry -> entry.expireAt <= now);
+        return cache.size() < maxSize;
+    }
+
+    private boolean isWellFormed(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') {
+                dots++;
+            }
+        }
+        return dots == 2;
+    }
+
+    private String digest(String token) {
+        MessageDigest messageDigest = SHA256.get();
+        messageDigest.reset();
+        return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class Entry {
+        private final Claims claims;
+        private final long expireAt;
+
+        Entry(Claims claims, long expireAt) {
+            this.claims = claims;
+            this.expireAt = expireAt;
+        }
+    }
+}
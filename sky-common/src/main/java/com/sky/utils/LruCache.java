@@ -0,0 +1,124 @@
+package com.sky.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内LRU缓存工具类
+ * 容量有上限，超出时淘汰最久未访问的数据；每条数据带有过期时间，过期后视为未命中
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    // 命中、未命中次数统计
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize   最大缓存条数
+     * @param ttlMillis 过期时间(毫秒)，小于等于0表示永不过期
+     */
+    public LruCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        // accessOrder = true，按访问顺序排序，最久未访问的数据在链表头部
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存数据，不存在或已过期返回null
+     * @param key
+     * @return
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expireAt > 0 && entry.expireAt < System.currentTimeMillis()) {
+            map.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * 放入缓存数据，使用默认过期时间
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    /**
+     * 放入缓存数据，指定过期时间
+     * @param key
+     * @param value
+     * @param ttlMillis 过期时间(毫秒)，小于等于0表示永不过期
+     */
+    public synchronized void put(K key, V value, long ttlMillis) {
+        long expireAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0;
+        map.put(key, new Entry<>(value, expireAt));
+    }
+
+    /**
+     * 删除缓存数据
+     * @param key
+     */
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 命中率
+     * @return
+     */
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
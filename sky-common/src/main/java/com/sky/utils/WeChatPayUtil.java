@@ -44,12 +44,31 @@ public class WeChatPayUtil {
     @Autowired
     private WeChatProperties weChatProperties;
 
+    // 微信支付客户端，构造时需要读取证书文件，因此只构造一次，之后复用
+    private volatile CloseableHttpClient httpClient;
+
     /**
      * 获取调用微信接口的客户端工具对象
      *
      * @return
      */
     private CloseableHttpClient getClient() {
+        if (httpClient == null) {
+            synchronized (this) {
+                if (httpClient == null) {
+                    httpClient = buildClient();
+                }
+            }
+        }
+        return httpClient;
+    }
+
+    /**
+     * 构造调用微信接口的客户端工具对象，与HttpClientUtil共用同一个连接池
+     *
+     * @return
+     */
+    private CloseableHttpClient buildClient() {
         PrivateKey merchantPrivateKey = null;
         try {
             //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
@@ -62,10 +81,11 @@ public class WeChatPayUtil {
             WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
                     .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
                     .withWechatPay(wechatPayCertificates);
+            // 设置共享的连接池、超时时间和长连接策略
+            HttpClientUtil.configure(builder);
 
             // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
-            CloseableHttpClient httpClient = builder.build();
-            return httpClient;
+            return builder.build();
         } catch (FileNotFoundException e) {
             e.printStackTrace();
             return null;
@@ -88,13 +108,15 @@ public class WeChatPayUtil {
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
-        try {
+        long start = System.nanoTime();
+        boolean success = false;
+        // 关闭响应即可将连接归还连接池，客户端本身不关闭
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
             String bodyAsString = EntityUtils.toString(response.getEntity());
+            success = response.getStatusLine().getStatusCode() < 400;
             return bodyAsString;
         } finally {
-            httpClient.close();
-            response.close();
+            HttpMetrics.record(httpPost.getURI().getHost(), System.nanoTime() - start, success);
         }
     }
 
@@ -112,13 +134,15 @@ public class WeChatPayUtil {
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        try {
+        long start = System.nanoTime();
+        boolean success = false;
+        // 关闭响应即可将连接归还连接池，客户端本身不关闭
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
             String bodyAsString = EntityUtils.toString(response.getEntity());
+            success = response.getStatusLine().getStatusCode() < 400;
             return bodyAsString;
         } finally {
-            httpClient.close();
-            response.close();
+            HttpMetrics.record(httpGet.getURI().getHost(), System.nanoTime() - start, success);
         }
     }
 
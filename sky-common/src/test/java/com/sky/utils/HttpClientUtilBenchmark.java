@@ -0,0 +1,122 @@
+package com.sky.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 比较每次请求新建HttpClient和使用HttpClientUtil共享连接池的请求耗时
+ * 直接运行main方法，请求发送到本地启动的模拟HTTP服务，服务端每次响应前等待一段时间模拟网络延迟
+ * 结束时输出HttpMetrics中按主机统计的数据和连接池使用情况
+ */
+public class HttpClientUtilBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int REQUESTS = 2000;
+    private static final int THREADS = 16;
+    // 模拟服务端处理耗时(毫秒)
+    private static final long SERVER_DELAY_MSEC = 2;
+
+    public static void main(String[] args) throws Exception {
+        // 模拟服务分两次写出响应头和响应体，需要关闭Nagle算法，否则长连接上的每个响应都要等待客户端的延迟确认(约40ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/mock", exchange -> {
+            try {
+                Thread.sleep(SERVER_DELAY_MSEC);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"openid\":\"mock\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(THREADS * 2, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/mock";
+
+        try {
+            for (int threads : new int[]{1, THREADS}) {
+                System.out.printf("%d个线程，每次%d个请求%n", threads, REQUESTS);
+                run("每次新建HttpClient", threads, () -> perCall(url));
+                run("共享连接池", threads, () -> HttpClientUtil.doGet(url, null));
+            }
+            HttpMetrics.snapshot().forEach((host, stats) -> System.out.printf("HttpMetrics %s: %s%n", host, stats));
+            System.out.println("连接池: " + HttpClientUtil.getPoolStats());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 原来的实现：每次请求创建并关闭一个HttpClient
+     * @param url
+     * @return
+     */
+    private static String perCall(String url) throws Exception {
+        try (CloseableHttpClient httpClient = HttpClients.createDefault();
+             CloseableHttpResponse response = httpClient.execute(new HttpGet(url))) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        }
+    }
+
+    private static void run(String name, int threads, Request request) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            request.send();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Long> costs = Collections.synchronizedList(new ArrayList<>(REQUESTS));
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < REQUESTS / threads; i++) {
+                        long begin = System.nanoTime();
+                        request.send();
+                        costs.add(System.nanoTime() - begin);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+
+        List<Long> sorted = new ArrayList<>(costs);
+        Collections.sort(sorted);
+        double avg = sorted.stream().mapToLong(Long::longValue).average().orElse(0) / 1e6;
+        double p99 = sorted.get((int) (sorted.size() * 0.99)) / 1e6;
+        System.out.printf("  %-16s 总耗时 %6d ms  平均 %6.2f ms  p99 %6.2f ms  吞吐 %8.0f 次/秒%n",
+                name, totalMillis, avg, p99, sorted.size() * 1000.0 / Math.max(1, totalMillis));
+    }
+
+    private interface Request {
+        Object send() throws Exception;
+    }
+}
@@ -0,0 +1,134 @@
+package com.sky.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * 比较令牌校验缓存使用加锁的LruCache与ConcurrentHashMap时，多线程校验(缓存命中)的吞吐量
+ * 直接运行main方法，令牌由JwtUtil生成，全部在缓存中，每次随机校验其中一个
+ * 线程数超过CPU核数时主要比较的是上下文切换，需要在多核机器上运行才能看出锁竞争的影响
+ */
+public class JwtVerifierBenchmark {
+
+    private static final String SECRET_KEY = "itcast-benchmark-secret-key-0123456789";
+    private static final int TOKENS = 1000;
+    private static final int OPERATIONS_PER_THREAD = 500000;
+
+    public static void main(String[] args) throws Exception {
+        // 两种实现共用摘要、验签等代码，在同一个JVM中先运行的实现会影响后运行实现的JIT编译结果，每种实现在单独的JVM中运行
+        if (args.length == 0) {
+            for (String variant : new String[]{"LruCache", "ConcurrentHashMap"}) {
+                new ProcessBuilder(System.getProperty("java.home") + "/bin/java",
+                        "-cp", System.getProperty("java.class.path"), JwtVerifierBenchmark.class.getName(), variant)
+                        .inheritIO().start().waitFor();
+            }
+            return;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < TOKENS; i++) {
+            Map<String, Object> claims = new HashMap<>();
+            claims.put("userId", (long) i);
+            tokens.add(JwtUtil.createJWT(SECRET_KEY, 2 * 60 * 60 * 1000, claims));
+        }
+        Function<String, Claims> verify;
+        if ("LruCache".equals(args[0])) {
+            verify = new LruVerifier(SECRET_KEY, 10000)::verify;
+        } else {
+            verify = new JwtVerifier(SECRET_KEY, 10000)::verify;
+        }
+        for (String token : tokens) {
+            check(verify.apply(token));
+        }
+
+        System.out.println(args[0]);
+        for (int threads : new int[]{1, 4, 16}) {
+            run(threads, tokens, verify);
+        }
+    }
+
+    private static void run(int threads, List<String> tokens, Function<String, Claims> verify) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // 预热
+        submit(executor, threads, tokens, verify);
+
+        long start = System.nanoTime();
+        submit(executor, threads, tokens, verify);
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        long operations = (long) threads * OPERATIONS_PER_THREAD;
+        System.out.printf("  %2d个线程 %8.0f 万次/秒  平均 %6.0f ns/次%n",
+                threads, operations / (nanos / 1e9) / 10000, (double) nanos * threads / operations);
+    }
+
+    private static void submit(ExecutorService executor, int threads, List<String> tokens, Function<String, Claims> verify)
+            throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    check(verify.apply(tokens.get(random.nextInt(tokens.size()))));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static void check(Claims claims) {
+        if (claims == null) {
+            throw new IllegalStateException("令牌校验失败");
+        }
+    }
+
+    /**
+     * 原来的实现：校验结果缓存在加锁的LruCache中
+     */
+    private static class LruVerifier {
+
+        private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        private final byte[] secretKey;
+        private final LruCache<String, Claims> cache;
+
+        LruVerifier(String secretKey, int maxSize) {
+            this.secretKey = secretKey.getBytes(StandardCharsets.UTF_8);
+            this.cache = new LruCache<>(maxSize, 0);
+        }
+
+        Claims verify(String token) {
+            MessageDigest messageDigest = SHA256.get();
+            messageDigest.reset();
+            String key = Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+            Claims claims = cache.get(key);
+            if (claims == null) {
+                claims = Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody();
+                cache.put(key, claims, claims.getExpiration().getTime() - System.currentTimeMillis());
+            }
+            return claims;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 每日新增用户统计数据
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DailyUserStatisticsDTO implements Serializable {
+    //日期
+    private LocalDate createDate;
+
+    //新增用户数
+    private Integer newUsers;
+}
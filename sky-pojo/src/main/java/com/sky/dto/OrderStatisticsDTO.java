@@ -0,0 +1,41 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 订单汇总统计数据
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStatisticsDTO implements Serializable {
+    //营业额(已完成订单的金额合计)
+    private Double turnover;
+
+    //订单总数
+    private Integer orderCount;
+
+    //有效订单数(已完成订单数)
+    private Integer validOrderCount;
+
+    //待付款订单数
+    private Integer pendingPaymentCount;
+
+    //待接单订单数
+    private Integer toBeConfirmedCount;
+
+    //已接单订单数
+    private Integer confirmedCount;
+
+    //派送中订单数
+    private Integer deliveryInProgressCount;
+
+    //已取消订单数
+    private Integer cancelledCount;
+}
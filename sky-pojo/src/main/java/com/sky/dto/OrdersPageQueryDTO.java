@@ -5,6 +5,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 public class OrdersPageQueryDTO implements Serializable {
@@ -27,4 +28,18 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //菜品名称，查询包含该菜品的订单
+    private String dishName;
+
+    //订单搜索索引的词条，由服务端根据订单号、手机号和菜品名称生成
+    private List<String> searchTokens;
+
+    //游标分页时上一页返回的游标，查询第一页时为空
+    private String cursor;
+
+    //游标解析出的上一页最后一个订单的下单时间和id，由服务端设置
+    private LocalDateTime cursorTime;
+
+    private Long cursorId;
+
 }
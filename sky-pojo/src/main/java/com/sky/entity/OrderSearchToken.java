@@ -0,0 +1,26 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 订单搜索倒排索引
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchToken implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //词条
+    private String token;
+
+    //订单id
+    private Long orderId;
+}
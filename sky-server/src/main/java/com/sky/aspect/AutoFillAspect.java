@@ -13,8 +13,13 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 自定义切面，实现公共字段自动填充处理逻辑
@@ -35,12 +40,15 @@ public class AutoFillAspect {
     @Pointcut("execution(* com.sky.mapper.*.*(..)) && @annotation(com.sky.annotation.AutoFill)")
     public void autoFillPointCut(){}
 
+    // 每个实体类的公共字段setter，第一次使用时解析，之后直接使用缓存
+    private static final Map<Class<?>, Setters> SETTERS_CACHE = new ConcurrentHashMap<>();
+
     /**
      * 前置通知,在通知中进行公共字段的赋值
      */
     @Before("autoFillPointCut()")  // 当匹配上切点表达式时则会执行该方法
     public void autoFill(JoinPoint joinPoint){
-        log.info("开始进行公共字段的自动填充...");
+        log.debug("开始进行公共字段的自动填充...");
 
         // 获取到当前被拦截的方法上的数据库操作类型
         // 获得签名,Signature接口向下转型成MethodSignature
@@ -50,43 +58,101 @@ public class AutoFillAspect {
 
         // 获取到当前被拦截的方法的参数 -- 实体对象
         Object[] args = joinPoint.getArgs();
-        if(args == null || args.length == 0){
+        if(args == null || args.length == 0 || args[0] == null){
             return;
         }
-        Object entity = args[0]; // 获得实体对象,约定参数第一个为实体对象
+        Object arg = args[0]; // 获得实体对象,约定参数第一个为实体对象(批量操作时为实体对象集合)
 
         // 准备赋值的数据
         LocalDateTime now = LocalDateTime.now();
         Long currentId = BaseContext.getCurrentId();
 
-        // 根据当前不同的操作类型，为对应的属性通过反射来赋值
-        if(operationType == OperationType.INSERT){
-            // 为4个公共字段赋值
-            try {
-                Method setCreateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
-                Method setCreateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                // 通过反射为对象属性赋值
-                setCreateTime.invoke(entity, now);
-                setCreateUser.invoke(entity, currentId);
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                e.printStackTrace();
+        if(arg instanceof Collection){
+            for (Object entity : (Collection<?>) arg) {
+                fill(entity, operationType, now, currentId);
+            }
+        }else{
+            fill(arg, operationType, now, currentId);
+        }
+    }
+
+    /**
+     * 根据当前不同的操作类型，为对应的属性赋值
+     */
+    private void fill(Object entity, OperationType operationType, LocalDateTime now, Long currentId){
+        if(entity == null){
+            return;
+        }
+        Setters setters = SETTERS_CACHE.computeIfAbsent(entity.getClass(), Setters::new);
+        try {
+            if(operationType == OperationType.INSERT){
+                // 为4个公共字段赋值
+                setters.setCreateTime(entity, now);
+                setters.setCreateUser(entity, currentId);
+                setters.setUpdateTime(entity, now);
+                setters.setUpdateUser(entity, currentId);
+            }else if(operationType == OperationType.UPDATE){
+                // 为2个公共字段赋值
+                setters.setUpdateTime(entity, now);
+                setters.setUpdateUser(entity, currentId);
             }
-        }else if(operationType == OperationType.UPDATE){
-            // 为2个公共字段赋值
+        } catch (Throwable e) {
+            log.error("公共字段自动填充失败:{}", entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 实体类的公共字段setter
+     * 使用MethodHandle代替每次调用时的getDeclaredMethod + Method.invoke，实体类中没有的字段跳过
+     */
+    private static class Setters {
+        private static final MethodType TIME_SETTER = MethodType.methodType(void.class, Object.class, LocalDateTime.class);
+        private static final MethodType USER_SETTER = MethodType.methodType(void.class, Object.class, Long.class);
+
+        private final MethodHandle setCreateTime;
+        private final MethodHandle setCreateUser;
+        private final MethodHandle setUpdateTime;
+        private final MethodHandle setUpdateUser;
+
+        Setters(Class<?> entityClass) {
+            setCreateTime = find(entityClass, AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class, TIME_SETTER);
+            setCreateUser = find(entityClass, AutoFillConstant.SET_CREATE_USER, Long.class, USER_SETTER);
+            setUpdateTime = find(entityClass, AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class, TIME_SETTER);
+            setUpdateUser = find(entityClass, AutoFillConstant.SET_UPDATE_USER, Long.class, USER_SETTER);
+        }
+
+        void setCreateTime(Object entity, LocalDateTime value) throws Throwable {
+            if (setCreateTime != null) {
+                setCreateTime.invokeExact(entity, value);
+            }
+        }
+
+        void setCreateUser(Object entity, Long value) throws Throwable {
+            if (setCreateUser != null) {
+                setCreateUser.invokeExact(entity, value);
+            }
+        }
+
+        void setUpdateTime(Object entity, LocalDateTime value) throws Throwable {
+            if (setUpdateTime != null) {
+                setUpdateTime.invokeExact(entity, value);
+            }
+        }
+
+        void setUpdateUser(Object entity, Long value) throws Throwable {
+            if (setUpdateUser != null) {
+                setUpdateUser.invokeExact(entity, value);
+            }
+        }
+
+        private static MethodHandle find(Class<?> entityClass, String name, Class<?> type, MethodType erased) {
             try {
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                // 通过反射为对象属性赋值
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                e.printStackTrace();
+                return MethodHandles.publicLookup()
+                        .findVirtual(entityClass, name, MethodType.methodType(void.class, type))
+                        .asType(erased);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                log.warn("实体类{}中没有公共字段方法{}", entityClass.getName(), name);
+                return null;
             }
         }
     }
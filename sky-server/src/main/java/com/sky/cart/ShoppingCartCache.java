@@ -0,0 +1,287 @@
+package com.sky.cart;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于redis的购物车
+ * 每个用户的购物车使用两个hash保存：一个保存商品数量(通过HINCRBY原子增减)，一个保存商品信息
+ * 购物车变化后只标记该用户，由定时任务批量写回shopping_cart表，点击加减商品时不访问数据库
+ * 每次修改(同时涉及两个hash、待写回标记和过期时间)都在一个lua脚本中完成，并发修改时两个hash保持一致
+ */
+@Component
+@Slf4j
+public class ShoppingCartCache {
+
+    // 商品数量，key:cart:count:用户id field:商品标识 value:数量
+    private static final String COUNT_KEY_PREFIX = "cart:count:";
+    // 商品信息，key:cart:item:用户id field:商品标识 value:购物车数据json
+    private static final String ITEM_KEY_PREFIX = "cart:item:";
+    // 购物车有变化、等待写回数据库的用户id集合
+    private static final String DIRTY_KEY = "cart:dirty";
+    // 数量hash中的占位字段，表示该用户的购物车已从数据库加载到redis(购物车为空时也存在)
+    private static final String LOADED_FIELD = "#";
+    // 购物车缓存过期时间，过期后下次访问重新从数据库加载
+    private static final long EXPIRE_DAYS = 7;
+
+    // 脚本公共参数：KEYS[1]数量hash KEYS[2]商品信息hash KEYS[3]待写回集合 ARGV[1]用户id ARGV[2]过期时间(秒)
+    // 标记待写回并延长过期时间
+    private static final String TOUCH =
+            "redis.call('sadd', KEYS[3], ARGV[1]) " +
+            "redis.call('expire', KEYS[1], ARGV[2]) " +
+            "redis.call('expire', KEYS[2], ARGV[2]) ";
+
+    // 商品数量+1，ARGV[3]商品标识 ARGV[4]商品信息json(可为空)
+    // 购物车中没有该商品且未传入商品信息时返回0，不修改数量
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if ARGV[4] ~= '' then redis.call('hsetnx', KEYS[2], ARGV[3], ARGV[4]) end " +
+            "if redis.call('hexists', KEYS[2], ARGV[3]) == 0 then return 0 end " +
+            "redis.call('hincrby', KEYS[1], ARGV[3], 1) " +
+            TOUCH +
+            "return 1",
+            Long.class);
+
+    // 商品数量-1，减为0时删除该商品，ARGV[3]商品标识
+    private static final DefaultRedisScript<Long> DECREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[3]) == 0 then return 0 end " +
+            "if redis.call('hincrby', KEYS[1], ARGV[3], -1) <= 0 then " +
+            "redis.call('hdel', KEYS[1], ARGV[3]) redis.call('hdel', KEYS[2], ARGV[3]) end " +
+            TOUCH +
+            "return 1",
+            Long.class);
+
+    // 批量加入，ARGV[3]起每3个参数为一个商品：商品标识、商品信息json、数量
+    private static final DefaultRedisScript<Long> ADD_ALL_SCRIPT = new DefaultRedisScript<>(
+            "for i = 3, #ARGV, 3 do " +
+            "redis.call('hsetnx', KEYS[2], ARGV[i], ARGV[i + 1]) " +
+            "redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 2]) end " +
+            TOUCH +
+            "return 1",
+            Long.class);
+
+    // 清空购物车，只保留占位字段
+    private static final DefaultRedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1], KEYS[2]) " +
+            "redis.call('hset', KEYS[1], '" + LOADED_FIELD + "', '1') " +
+            TOUCH +
+            "return 1",
+            Long.class);
+
+    // 从数据库加载购物车，购物车已在redis中时不加载(避免覆盖并发的修改或加载已清空的购物车)
+    // ARGV[3]起每3个参数为一个商品：商品标识、商品信息json、数量
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "for i = 3, #ARGV, 3 do " +
+            "redis.call('hset', KEYS[2], ARGV[i], ARGV[i + 1]) " +
+            "redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 2]) end " +
+            "redis.call('hset', KEYS[1], '" + LOADED_FIELD + "', '1') " +
+            "redis.call('expire', KEYS[1], ARGV[2]) " +
+            "redis.call('expire', KEYS[2], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 商品数量+1
+     * 购物车中没有该商品时需要传入完整的商品信息(名称不为空)，否则不修改购物车并返回false
+     * @param userId
+     * @param shoppingCart
+     * @return 是否已加入购物车
+     */
+    public boolean increment(Long userId, ShoppingCart shoppingCart) {
+        ensureLoaded(userId);
+        String json = shoppingCart.getName() == null ? "" : toJson(shoppingCart);
+        Long result = execute(INCREMENT_SCRIPT, userId, field(shoppingCart), json);
+        return result != null && result == 1;
+    }
+
+    /**
+     * 商品数量-1，数量减为0时从购物车中删除该商品
+     * @param userId
+     * @param shoppingCart
+     */
+    public void decrement(Long userId, ShoppingCart shoppingCart) {
+        ensureLoaded(userId);
+        execute(DECREMENT_SCRIPT, userId, field(shoppingCart));
+    }
+
+    /**
+     * 批量加入购物车，已有的商品数量累加
+     * @param userId
+     * @param shoppingCartList
+     */
+    public void addAll(Long userId, List<ShoppingCart> shoppingCartList) {
+        ensureLoaded(userId);
+        List<String> args = new ArrayList<>();
+        for (ShoppingCart shoppingCart : shoppingCartList) {
+            args.add(field(shoppingCart));
+            args.add(toJson(shoppingCart));
+            args.add(String.valueOf(shoppingCart.getNumber()));
+        }
+        execute(ADD_ALL_SCRIPT, userId, args.toArray(new String[0]));
+    }
+
+    /**
+     * 查询用户的购物车
+     * 商品数量和商品信息在一个事务(MULTI/EXEC)中读取，得到一致的快照
+     * @param userId
+     * @return
+     */
+    public List<ShoppingCart> list(Long userId) {
+        ensureLoaded(userId);
+        String countKey = COUNT_KEY_PREFIX + userId;
+        String itemKey = ITEM_KEY_PREFIX + userId;
+        List<Object> results = stringRedisTemplate.execute(new SessionCallback<List<Object>>() {
+            public List<Object> execute(RedisOperations operations) throws DataAccessException {
+                operations.multi();
+                operations.opsForHash().entries(countKey);
+                operations.opsForHash().entries(itemKey);
+                return operations.exec();
+            }
+        });
+        Map<Object, Object> counts = (Map<Object, Object>) results.get(0);
+        Map<Object, Object> items = (Map<Object, Object>) results.get(1);
+
+        List<ShoppingCart> list = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : counts.entrySet()) {
+            Object json = items.get(entry.getKey());
+            if (LOADED_FIELD.equals(entry.getKey()) || json == null) {
+                continue;
+            }
+            ShoppingCart shoppingCart = JSON.parseObject((String) json, ShoppingCart.class);
+            shoppingCart.setUserId(userId);
+            shoppingCart.setNumber(Integer.valueOf((String) entry.getValue()));
+            list.add(shoppingCart);
+        }
+        // 按加入购物车的时间排序
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return list;
+    }
+
+    /**
+     * 清空用户的购物车
+     * @param userId
+     */
+    public void clear(Long userId) {
+        // 保留占位字段，避免下次访问时把数据库中尚未写回的旧数据重新加载进来
+        execute(CLEAR_SCRIPT, userId);
+    }
+
+    /**
+     * 将有变化的购物车写回数据库
+     * @param batchSize 每次处理的用户数
+     * @return 本次写回的用户数
+     */
+    public int flush(int batchSize) {
+        List<String> userIds = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, batchSize);
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        for (String id : userIds) {
+            Long userId = Long.valueOf(id);
+            try {
+                List<ShoppingCart> list = list(userId);
+                // 先删后插，在同一个事务中用redis中的快照整体替换数据库中的购物车
+                transactionTemplate.executeWithoutResult(status -> {
+                    shoppingCartMapper.deleteByUserId(userId);
+                    if (!list.isEmpty()) {
+                        shoppingCartMapper.insertBatch(list);
+                    }
+                });
+            } catch (Exception e) {
+                // 写回失败，重新标记，等待下次写回
+                log.error("购物车写回数据库失败:{}", userId, e);
+                stringRedisTemplate.opsForSet().add(DIRTY_KEY, id);
+            }
+        }
+        return userIds.size();
+    }
+
+    /**
+     * 购物车不在redis中时，从数据库加载
+     * 加载脚本在购物车已存在时不写入，不会覆盖并发请求已经写入的数据
+     * @param userId
+     */
+    private void ensureLoaded(Long userId) {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(COUNT_KEY_PREFIX + userId))) {
+            return;
+        }
+        List<ShoppingCart> list = shoppingCartMapper.list(ShoppingCart.builder().userId(userId).build());
+        List<String> args = new ArrayList<>();
+        for (ShoppingCart shoppingCart : list) {
+            args.add(field(shoppingCart));
+            args.add(toJson(shoppingCart));
+            args.add(String.valueOf(shoppingCart.getNumber()));
+        }
+        execute(LOAD_SCRIPT, userId, args.toArray(new String[0]));
+    }
+
+    /**
+     * 执行购物车脚本，传入公共的key和参数
+     * @param script
+     * @param userId
+     * @param args 脚本的其余参数，从ARGV[3]开始
+     * @return
+     */
+    private Long execute(DefaultRedisScript<Long> script, Long userId, String... args) {
+        List<String> keys = Arrays.asList(COUNT_KEY_PREFIX + userId, ITEM_KEY_PREFIX + userId, DIRTY_KEY);
+        Object[] argv = new Object[args.length + 2];
+        argv[0] = String.valueOf(userId);
+        argv[1] = String.valueOf(TimeUnit.DAYS.toSeconds(EXPIRE_DAYS));
+        System.arraycopy(args, 0, argv, 2, args.length);
+        return stringRedisTemplate.execute(script, keys, argv);
+    }
+
+    /**
+     * 商品在购物车中的唯一标识：菜品为 dish:菜品id:口味，套餐为 setmeal:套餐id
+     * @param shoppingCart
+     * @return
+     */
+    private String field(ShoppingCart shoppingCart) {
+        if (shoppingCart.getDishId() != null) {
+            return "dish:" + shoppingCart.getDishId() + ":" + (shoppingCart.getDishFlavor() == null ? "" : shoppingCart.getDishFlavor());
+        }
+        return "setmeal:" + shoppingCart.getSetmealId();
+    }
+
+    /**
+     * 商品信息转为json，数量单独保存，不写入json
+     * @param shoppingCart
+     * @return
+     */
+    private String toJson(ShoppingCart shoppingCart) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", shoppingCart.getName());
+        map.put("image", shoppingCart.getImage());
+        map.put("dishId", shoppingCart.getDishId());
+        map.put("setmealId", shoppingCart.getSetmealId());
+        map.put("dishFlavor", shoppingCart.getDishFlavor());
+        map.put("amount", shoppingCart.getAmount());
+        map.put("createTime", shoppingCart.getCreateTime());
+        return JSON.toJSONString(map);
+    }
+}
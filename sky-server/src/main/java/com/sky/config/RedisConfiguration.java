@@ -1,10 +1,12 @@
 package com.sky.config;
 
+import com.sky.redis.CompactRedisSerializer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -23,6 +25,21 @@ public class RedisConfiguration {
         // 若想使value也直接显示,也可以对redis的value设置序列化器
         // 但是这里最好不要设置value的String序列化器，因为这样无法存入除String以外的其他数据
 //        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        // value使用带版本号的json序列化器(可压缩)，比默认的JDK序列化体积更小、速度更快
+        redisTemplate.setValueSerializer(new CompactRedisSerializer());
         return redisTemplate;
     }
+
+    /**
+     * redis消息监听容器，用于订阅各节点之间广播的消息
+     * @param redisConnectionFactory
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory){
+        log.info("开始创建redis消息监听容器...");
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
 }
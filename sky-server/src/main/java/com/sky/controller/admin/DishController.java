@@ -4,6 +4,7 @@ import com.sky.dto.DishDTO;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.mapper.DishMapper;
+import com.sky.menu.MenuCache;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.DishService;
@@ -12,11 +13,9 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * 菜品管理
@@ -30,7 +29,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private MenuCache menuCache;
 
     /**
      * 新增菜品
@@ -44,7 +43,7 @@ public class DishController {
         dishService.saveWithFlavor(dishDTO);
 
         // 清理缓存数据
-        cleanCache("dish_" + dishDTO.getCategoryId());
+        menuCache.evict(MenuCache.DISH, dishDTO.getCategoryId());
 
         return Result.success();
     }
@@ -73,8 +72,7 @@ public class DishController {
 
         // 清理所有菜品缓存
         // 将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        // 通配符*，获取所有以dish_开头的key
-        cleanCache("dish_*");
+        menuCache.evictAll(MenuCache.DISH);
 
         return Result.success();
     }
@@ -107,7 +105,7 @@ public class DishController {
         // 清理所有菜品缓存
         // 若修改菜品分类，此时不仅影响该分类，还影响另一分类
         // 因此为了方便，直接删除所有缓存。那不然需要查询是哪两个分类进行删除
-        cleanCache("dish_*");
+        menuCache.evictAll(MenuCache.DISH);
 
         return Result.success();
     }
@@ -125,7 +123,7 @@ public class DishController {
         dishService.startOrStop(status, id);
 
         // 清理所有菜品缓存
-        cleanCache("dish_*");
+        menuCache.evictAll(MenuCache.DISH);
 
         return Result.success();
     }
@@ -141,12 +139,4 @@ public class DishController {
         List<Dish> list = dishService.list(categoryId);
         return Result.success(list);
     }
-
-    /**
-     * 清理缓存数据
-     */
-    private void cleanCache(String pattern){
-        Set keys = redisTemplate.keys(pattern);
-        redisTemplate.delete(keys);
-    }
 }
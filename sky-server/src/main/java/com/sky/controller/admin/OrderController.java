@@ -1,9 +1,12 @@
 package com.sky.controller.admin;
 
+import com.sky.constant.MessageConstant;
 import com.sky.dto.OrdersCancelDTO;
 import com.sky.dto.OrdersConfirmDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.dto.OrdersRejectionDTO;
+import com.sky.order.OrderSearchIndex;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -26,6 +29,8 @@ public class OrderController {
 
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
 
     /**
      * 订单搜索
@@ -38,6 +43,18 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 订单搜索，游标分页
+     * 查询第一页时cursor为空，之后传入上一页返回的nextCursor
+     * @return
+     */
+    @GetMapping("/conditionSearch/cursor")
+    @ApiOperation("订单搜索(游标分页)")
+    public Result<CursorPageResult> conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO){
+        CursorPageResult cursorPageResult = orderService.conditionSearchByCursor(ordersPageQueryDTO);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -119,4 +136,19 @@ public class OrderController {
         orderService.complete(id);
         return Result.success();
     }
+
+    /**
+     * 重建订单搜索索引，在后台执行
+     *
+     * @return
+     */
+    @PostMapping("/searchIndex/rebuild")
+    @ApiOperation("重建订单搜索索引")
+    public Result rebuildSearchIndex() {
+        log.info("重建订单搜索索引");
+        if (!orderSearchIndex.rebuildAsync()) {
+            return Result.error(MessageConstant.ORDER_SEARCH_INDEX_REBUILDING);
+        }
+        return Result.success();
+    }
 }
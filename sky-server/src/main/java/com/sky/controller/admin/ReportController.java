@@ -1,5 +1,7 @@
 package com.sky.controller.admin;
 
+import com.sky.constant.MessageConstant;
+import com.sky.exception.ReportBusinessException;
 import com.sky.result.Result;
 import com.sky.service.ReportService;
 import com.sky.vo.OrderReportVO;
@@ -18,6 +20,7 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 /**
  * 数据统计相关接口
@@ -28,6 +31,9 @@ import java.time.LocalDate;
 @Slf4j
 public class ReportController {
 
+    // 导出报表的最大天数
+    private static final long MAX_EXPORT_DAYS = 366;
+
     @Autowired
     private ReportService reportService;
 
@@ -96,12 +102,28 @@ public class ReportController {
 
     /**
      * 导出运营数据报表
+     * @param begin
+     * @param end
      * @param response
      */
     @GetMapping("/export")
     @ApiOperation("导出运营数据报表")
-    public void export(HttpServletResponse response){
+    public void export(@DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+                       @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+                       HttpServletResponse response){
         // 通过response对象获得输出流，然后使用该输出流将excel文件下载到浏览器
-        reportService.exportBusinessData(response);
+        // 未指定时间区间时导出最近30天的数据
+        if(begin == null || end == null){
+            reportService.exportBusinessData(response);
+        }else{
+            log.info("导出运营数据报表:{},{}", begin, end);
+            if(begin.isAfter(end)){
+                throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_INVALID);
+            }
+            if(ChronoUnit.DAYS.between(begin, end) >= MAX_EXPORT_DAYS){
+                throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_TOO_LONG);
+            }
+            reportService.exportBusinessData(begin, end, response);
+        }
     }
 }
@@ -5,6 +5,7 @@ import com.sky.dto.SetmealDTO;
 import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Setmeal;
 import com.sky.entity.SetmealDish;
+import com.sky.menu.MenuCache;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.SetmealService;
@@ -13,7 +14,6 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -29,6 +29,8 @@ public class SetmealController {
 
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private MenuCache menuCache;
 
     /**
      * 新增套餐
@@ -37,10 +39,11 @@ public class SetmealController {
      */
     @PostMapping
     @ApiOperation("新增套餐")
-    @CacheEvict(cacheNames = "setmealCache", key = "#setmealDTO.categoryId") // 仅更改一个套餐，只需要删除改套餐对应分类缓存即可
     public Result save(@RequestBody SetmealDTO setmealDTO){
         log.info("新增套餐:{}", setmealDTO);
         setmealService.saveWithDish(setmealDTO);
+        // 仅更改一个套餐，只需要删除该套餐对应分类缓存即可
+        menuCache.evict(MenuCache.SETMEAL, setmealDTO.getCategoryId());
         return Result.success();
     }
 
@@ -61,9 +64,10 @@ public class SetmealController {
      */
     @DeleteMapping
     @ApiOperation("批量删除套餐")
-    @CacheEvict(cacheNames = "setmealCache", allEntries = true) //批量删除套餐，可能影响多个分类缓存，因此删除所有
     public Result delete(@RequestParam List<Long> ids){
         setmealService.deleteBatch(ids);
+        // 批量删除套餐，可能影响多个分类缓存，因此删除所有
+        menuCache.evictAll(MenuCache.SETMEAL);
         return Result.success();
     }
 
@@ -82,9 +86,10 @@ public class SetmealController {
      */
     @PutMapping
     @ApiOperation("修改套餐")
-    @CacheEvict(cacheNames = "setmealCache", allEntries = true) //修改套餐，可能影响多个分类缓存，因此删除所有
     public Result update(@RequestBody SetmealDTO setmealDTO){
         setmealService.update(setmealDTO);
+        // 修改套餐，可能影响多个分类缓存，因此删除所有
+        menuCache.evictAll(MenuCache.SETMEAL);
         return Result.success();
     }
 
@@ -96,9 +101,10 @@ public class SetmealController {
      */
     @PostMapping("/status/{status}")
     @ApiOperation("套餐起售停售")
-    @CacheEvict(cacheNames = "setmealCache", allEntries = true) //启售停售套餐，可能影响多个分类缓存，因此删除所有
     public Result startOrStop(@PathVariable Integer status, Long id){
         setmealService.startOrStop(status, id);
+        // 启售停售套餐，可能影响多个分类缓存，因此删除所有
+        menuCache.evictAll(MenuCache.SETMEAL);
         return Result.success();
     }
 }
@@ -1,11 +1,11 @@
 package com.sky.controller.admin;
 
 import com.sky.result.Result;
+import com.sky.shop.ShopStatusHolder;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 @RestController("adminShopController")
@@ -14,10 +14,8 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class ShopController {
 
-    public static final String KEY = "SHOP_STATUS";
-
     @Autowired
-    private RedisTemplate redisTemplate;
+    private ShopStatusHolder shopStatusHolder;
 
     /**
      * 设置店铺营业状态
@@ -28,7 +26,8 @@ public class ShopController {
     @ApiOperation("设置店铺营业状态")
     public Result setStatus(@PathVariable Integer status){
         log.info("设置店铺的营业状态为:{}", status == 1 ? "营业中" : "打烊中");
-        redisTemplate.opsForValue().set(KEY, status);
+        // 写入redis并通知所有节点
+        shopStatusHolder.setStatus(status);
         return Result.success();
     }
 
@@ -41,8 +40,9 @@ public class ShopController {
     @GetMapping("/status")
     @ApiOperation("获取店铺营业状态")
     public Result<Integer> getStatus(){
-        Integer status = (Integer) redisTemplate.opsForValue().get(KEY);
-        log.info("获取到店铺的营业状态为:{}", status == 1 ? "营业中" : "打烊中");
+        // 读取内存中的营业状态，不访问redis
+        Integer status = shopStatusHolder.getStatus();
+        log.info("获取到店铺的营业状态为:{}", shopStatusHolder.isOpen() ? "营业中" : "打烊中");
         return Result.success(status);
     }
 }
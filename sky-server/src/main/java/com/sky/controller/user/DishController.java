@@ -1,6 +1,7 @@
 package com.sky.controller.user;
 
 import com.sky.entity.Dish;
+import com.sky.menu.MenuCache;
 import com.sky.result.Result;
 import com.sky.service.DishService;
 import com.sky.vo.DishVO;
@@ -8,7 +9,6 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -24,7 +24,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private MenuCache menuCache;
 
     /**
      * 根据分类id查对应菜品及其口味
@@ -36,21 +36,8 @@ public class DishController {
     public Result<List<DishVO>> list(Long categoryId){
         log.info("根据分类id查询菜品:{}", categoryId);
 
-        // 构造redis中的key，规则:dish_分类id
-        String key = "dish_" + categoryId;
-
-        // 查询redis中是否存在菜品数据
-        List<DishVO> dishVOList = (List<DishVO>) redisTemplate.opsForValue().get(key);
-        // 若redis获取到数据
-        // 这里使用&&而非||，否则会报空指针异常
-        if(dishVOList != null && dishVOList.size() > 0){
-            // 如果存在，直接返回，无需查询数据库
-            return Result.success(dishVOList);
-        }
-
-        // 如果不存在，查询数据库，将查询到的数据放入redis中
-        dishVOList = dishService.listWithFlavor(categoryId);
-        redisTemplate.opsForValue().set(key, dishVOList);
+        // 依次查询进程内缓存、redis，都不存在时查询数据库并放入缓存
+        List<DishVO> dishVOList = menuCache.get(MenuCache.DISH, categoryId, () -> dishService.listWithFlavor(categoryId));
 
         return Result.success(dishVOList);
     }
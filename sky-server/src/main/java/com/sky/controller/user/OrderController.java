@@ -2,6 +2,7 @@ package com.sky.controller.user;
 
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -66,6 +67,21 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 历史订单查询，游标分页
+     * @param cursor 上一页返回的nextCursor，查询第一页时为空
+     * @param pageSize
+     * @param status
+     * 订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+     * @return
+     */
+    @GetMapping("/historyOrders/cursor")
+    @ApiOperation("历史订单查询(游标分页)")
+    public Result<CursorPageResult> cursorPage(String cursor, int pageSize, Integer status){
+        CursorPageResult cursorPageResult = orderService.cursorQuery4User(cursor, pageSize, status);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 查询订单详情
      * @param id
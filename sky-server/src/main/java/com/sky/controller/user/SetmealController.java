@@ -1,6 +1,7 @@
 package com.sky.controller.user;
 
 import com.sky.entity.Setmeal;
+import com.sky.menu.MenuCache;
 import com.sky.result.Result;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
@@ -8,7 +9,6 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,6 +24,8 @@ public class SetmealController {
 
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private MenuCache menuCache;
 
     /**
      * 条件查询
@@ -32,10 +34,10 @@ public class SetmealController {
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setmealCache", key = "#categoryId") // key: setmealCache::categoryId
     public Result<List<Setmeal>> list(Long categoryId){
         log.info("根据分类id查询套餐:{}", categoryId);
-        List<Setmeal> setmealList = setmealService.list(categoryId);
+        // 依次查询进程内缓存、redis，都不存在时查询数据库并放入缓存
+        List<Setmeal> setmealList = menuCache.get(MenuCache.SETMEAL, categoryId, () -> setmealService.list(categoryId));
         return Result.success(setmealList);
     }
 
@@ -0,0 +1,64 @@
+package com.sky.geo;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.utils.HttpClientUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于百度地图开放平台的地理编码实现
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.geo", name = "stub", havingValue = "false", matchIfMissing = true)
+public class BaiduGeocoder implements Geocoder {
+
+    private static final String baiduLocationAPIUrl = "https://api.map.baidu.com/geocoding/v3";
+    private static final String baiduDistanceAPIUrl = "https://api.map.baidu.com/directionlite/v1/driving";
+
+    @Value("${sky.baidu.ak}")
+    private String ak;
+
+    public String geocode(String address) {
+        Map<String, String> map = new HashMap<>();
+        map.put("address", address);
+        map.put("ak", ak);
+        // 由于官方api提供的输出格式默认值为xml,我们需要将其转为json
+        map.put("output", "json");
+
+        String json = HttpClientUtil.doGet(baiduLocationAPIUrl, map);
+        JSONObject jsonObject = JSON.parseObject(json);
+        // 通过检查status字段判断API调用是否成功，status="0"表示成功
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            return null;
+        }
+
+        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
+        String lng = location.getString("lng"); // 经度值
+        String lat = location.getString("lat"); // 纬度值
+        return lat + "," + lng;
+    }
+
+    public Integer distance(String origin, String destination) {
+        Map<String, String> map = new HashMap<>();
+        map.put("ak", ak);
+        map.put("origin", origin);
+        map.put("destination", destination);
+        map.put("steps_info", "0");
+
+        // 路线规划
+        String json = HttpClientUtil.doGet(baiduDistanceAPIUrl, map);
+        JSONObject jsonObject = JSON.parseObject(json);
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            return null;
+        }
+
+        JSONArray routes = jsonObject.getJSONObject("result").getJSONArray("routes");
+        return routes.getJSONObject(0).getInteger("distance");
+    }
+}
@@ -0,0 +1,174 @@
+package com.sky.geo;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.GeoProperties;
+import com.sky.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地理编码与配送距离缓存
+ * 店铺坐标在启动时解析一次；用户地址坐标和配送距离先查进程内LRU缓存，再查redis，最后才调用地图接口
+ */
+@Component
+@Slf4j
+public class GeoCache {
+
+    private static final String COORDINATE_KEY_PREFIX = "geo:coordinate:";
+    private static final String DISTANCE_KEY_PREFIX = "geo:distance:";
+
+    @Autowired
+    private Geocoder geocoder;
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private GeoProperties geoProperties;
+    @Value("${sky.shop.address}")
+    private String shopAddress;
+
+    // 店铺经纬度坐标，地址固定不变，只需解析一次
+    private volatile String shopCoordinate;
+
+    private LruCache<String, String> coordinateCache;
+    private LruCache<String, Integer> distanceCache;
+
+    @PostConstruct
+    public void init() {
+        coordinateCache = new LruCache<>(geoProperties.getLocalMaxSize(), geoProperties.getCoordinateTtl());
+        distanceCache = new LruCache<>(geoProperties.getLocalMaxSize(), geoProperties.getDistanceTtl());
+        try {
+            shopCoordinate = geocoder.geocode(shopAddress);
+            log.info("店铺经纬度坐标:{}", shopCoordinate);
+        } catch (Exception e) {
+            // 启动时解析失败不影响启动，下单时再重新解析
+            log.warn("店铺地址解析失败，将在下单时重试", e);
+        }
+    }
+
+    /**
+     * 获取店铺经纬度坐标
+     * @return
+     */
+    public String getShopCoordinate() {
+        if (shopCoordinate == null) {
+            synchronized (this) {
+                if (shopCoordinate == null) {
+                    shopCoordinate = geocoder.geocode(shopAddress);
+                }
+            }
+        }
+        if (shopCoordinate == null) {
+            throw new OrderBusinessException(MessageConstant.SHOP_ADDRESS_PARSE_FAILED);
+        }
+        return shopCoordinate;
+    }
+
+    /**
+     * 获取地址的经纬度坐标
+     * @param address
+     * @return
+     */
+    public String getCoordinate(String address) {
+        String key = normalize(address);
+
+        // 一级缓存：进程内
+        String coordinate = coordinateCache.get(key);
+        if (coordinate != null) {
+            return coordinate;
+        }
+
+        // 二级缓存：redis
+        coordinate = (String) redisGet(COORDINATE_KEY_PREFIX + key);
+        if (coordinate == null) {
+            coordinate = geocoder.geocode(address);
+            if (coordinate == null) {
+                throw new OrderBusinessException(MessageConstant.USER_ADDRESS_PARSE_FAILED);
+            }
+            redisSet(COORDINATE_KEY_PREFIX + key, coordinate, geoProperties.getCoordinateTtl());
+        }
+        coordinateCache.put(key, coordinate);
+        return coordinate;
+    }
+
+    /**
+     * 获取两个坐标之间的驾车距离
+     * @param origin
+     * @param destination
+     * @return
+     */
+    public Integer getDistance(String origin, String destination) {
+        String key = origin + "|" + destination;
+
+        Integer distance = distanceCache.get(key);
+        if (distance != null) {
+            return distance;
+        }
+
+        distance = (Integer) redisGet(DISTANCE_KEY_PREFIX + key);
+        if (distance == null) {
+            distance = geocoder.distance(origin, destination);
+            if (distance == null) {
+                throw new OrderBusinessException(MessageConstant.DELIVERY_ROUTE_FAILED);
+            }
+            redisSet(DISTANCE_KEY_PREFIX + key, distance, geoProperties.getDistanceTtl());
+        }
+        distanceCache.put(key, distance);
+        return distance;
+    }
+
+    /**
+     * 检查收货地址是否超出配送范围
+     * @param address
+     */
+    public void checkOutOfRange(String address) {
+        Integer distance = getDistance(getShopCoordinate(), getCoordinate(address));
+        log.debug("地理编码缓存统计:{}", stats());
+        if (distance > geoProperties.getMaxDistance()) {
+            throw new OrderBusinessException(MessageConstant.OUT_OF_DELIVERY_RANGE);
+        }
+    }
+
+    /**
+     * 输出缓存命中情况
+     * @return
+     */
+    public String stats() {
+        return String.format("coordinate[hits=%d, misses=%d, size=%d], distance[hits=%d, misses=%d, size=%d]",
+                coordinateCache.getHits(), coordinateCache.getMisses(), coordinateCache.size(),
+                distanceCache.getHits(), distanceCache.getMisses(), distanceCache.size());
+    }
+
+    /**
+     * 规范化地址，去掉空白字符，避免同一地址因格式不同而重复解析
+     * @param address
+     * @return
+     */
+    private String normalize(String address) {
+        return address.replaceAll("[\\s\\u3000]+", "").toLowerCase();
+    }
+
+    // redis不可用时降级为直接调用地图接口，不影响下单
+    private Object redisGet(String key) {
+        try {
+            return redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取地理编码缓存失败:{}", key, e);
+            return null;
+        }
+    }
+
+    private void redisSet(String key, Object value, long ttlMillis) {
+        try {
+            redisTemplate.opsForValue().set(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("写入地理编码缓存失败:{}", key, e);
+        }
+    }
+}
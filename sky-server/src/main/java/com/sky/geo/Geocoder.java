@@ -0,0 +1,23 @@
+package com.sky.geo;
+
+/**
+ * 地理编码与路线规划接口
+ * 坐标统一使用 "纬度,经度" 格式的字符串
+ */
+public interface Geocoder {
+
+    /**
+     * 将地址解析为经纬度坐标
+     * @param address
+     * @return 解析失败返回null
+     */
+    String geocode(String address);
+
+    /**
+     * 计算两个坐标之间的驾车距离
+     * @param origin
+     * @param destination
+     * @return 距离(米)，规划失败返回null
+     */
+    Integer distance(String origin, String destination);
+}
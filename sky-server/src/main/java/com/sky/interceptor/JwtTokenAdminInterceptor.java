@@ -3,13 +3,14 @@ package com.sky.interceptor;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
-import com.sky.utils.JwtUtil;
+import com.sky.utils.JwtVerifier;
 import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -20,9 +21,27 @@ import javax.servlet.http.HttpServletResponse;
 @Slf4j
 public class JwtTokenAdminInterceptor implements HandlerInterceptor {
 
+    // 最多缓存的令牌数
+    private static final int TOKEN_CACHE_SIZE = 10000;
+
     @Autowired
     private JwtProperties jwtProperties;
 
+    private JwtVerifier jwtVerifier;
+
+    @PostConstruct
+    public void init() {
+        jwtVerifier = new JwtVerifier(jwtProperties.getAdminSecretKey(), TOKEN_CACHE_SIZE);
+    }
+
+    /**
+     * 令牌校验统计数据
+     * @return
+     */
+    public String stats() {
+        return jwtVerifier.stats();
+    }
+
     /**
      * 校验jwt
      *
@@ -45,7 +64,13 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
         //2、校验令牌
         try {
             log.info("jwt校验:{}", token);
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
+            // 校验通过的令牌会被缓存，同一令牌再次请求时无需重新验签
+            Claims claims = jwtVerifier.verify(token);
+            if (claims == null) {
+                // 令牌格式错误、签名错误或已过期，响应401状态码
+                response.setStatus(401);
+                return false;
+            }
             Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
             log.info("当前员工id：{}", empId);
             BaseContext.setCurrentId(empId); // 调用ThreadLocal存储当前线程的局部变量,一次请求即为一次线程
@@ -0,0 +1,27 @@
+package com.sky.mapper;
+
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 查询指定日期区间内的汇总数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Select("select * from daily_business_stats where stat_date between #{begin} and #{end} order by stat_date")
+    List<DailyBusinessStats> getByDateRange(LocalDate begin, LocalDate end);
+
+    /**
+     * 批量插入汇总数据，日期已存在时覆盖
+     * @param statsList
+     */
+    void upsertBatch(List<DailyBusinessStats> statsList);
+}
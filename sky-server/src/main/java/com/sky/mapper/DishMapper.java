@@ -80,6 +80,14 @@ public interface DishMapper {
      */
     List<Dish> list(Dish dish);
 
+    /**
+     * 动态条件查询菜品及其口味
+     * 菜品表与口味表连接查询，由嵌套结果映射直接封装为DishVO，无需逐个菜品查询口味
+     * @param dish
+     * @return
+     */
+    List<DishVO> listWithFlavor(Dish dish);
+
     /**
      * 根据套餐id查询菜品
      * @param setmealId
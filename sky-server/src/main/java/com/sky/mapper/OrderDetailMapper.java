@@ -1,6 +1,7 @@
 package com.sky.mapper;
 
 import com.sky.entity.OrderDetail;
+import com.sky.vo.OrderVO;
 import org.apache.ibatis.annotations.Mapper;
 
 import java.util.List;
@@ -19,4 +20,19 @@ public interface OrderDetailMapper {
      * @return
      */
     List<OrderDetail> getByOrderId(Long ordersId);
+
+    /**
+     * 根据订单id集合批量查询订单明细，一次查询取回一页订单的全部明细
+     * @param orderIds
+     * @return
+     */
+    List<OrderDetail> getByOrderIds(List<Long> orderIds);
+
+    /**
+     * 根据订单id集合查询订单及其明细，订单表与明细表连接查询，由嵌套结果映射组装成OrderVO
+     * 连接后的行数为明细数量，因此不能与PageHelper分页一起使用
+     * @param orderIds
+     * @return
+     */
+    List<OrderVO> getOrderVOByIds(List<Long> orderIds);
 }
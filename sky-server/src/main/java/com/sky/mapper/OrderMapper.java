@@ -1,15 +1,17 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
+import com.sky.dto.DailyOrderStatisticsDTO;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatisticsDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
-import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -37,15 +39,28 @@ public interface OrderMapper {
     void update(Orders orders);
 
     /**
-     * 用于替换微信支付更新数据库状态的问题
-     * @param orderStatus
-     * @param orderPaidStatus
-     * @param checkOutTime
-     * @param orderNumber
+     * 订单当前状态在指定状态中时才修改订单，用于并发场景下的状态流转
+     * @param orders
+     * @param statusList 允许修改的当前状态
+     * @return 修改的行数，为0表示订单状态已被修改
+     */
+    int updateByIdAndStatus(Orders orders, List<Integer> statusList);
+
+    /**
+     * 订单当前状态在指定状态中时才取消订单，已支付的订单同时改为退款状态
+     * @param orders
+     * @param statusList 允许取消的当前状态
+     * @return 修改的行数，为0表示订单不存在或状态已被修改
      */
-    @Update("update orders set status = #{orderStatus},pay_status = #{orderPaidStatus} ,checkout_time = #{checkOutTime} " +
-            "where number = #{orderNumber}")
-    void updateStatus(Integer orderStatus, Integer orderPaidStatus, LocalDateTime checkOutTime, String orderNumber);
+    int cancelByIdAndStatus(Orders orders, List<Integer> statusList);
+
+    /**
+     * 查询指定订单中下单时间早于指定时间的订单的下单日期(去重)
+     * @param ids
+     * @param orderTime
+     * @return
+     */
+    List<LocalDate> getOrderDatesByIdsAndOrderTimeLT(Collection<Long> ids, LocalDateTime orderTime);
 
     /**
      * 分页条件查询并按下单时间排序
@@ -54,6 +69,22 @@ public interface OrderMapper {
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 统计符合分页查询条件的订单数
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    Long countByQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
+    /**
+     * 游标分页条件查询，按下单时间、id倒序，从游标位置之后开始查询
+     * 不使用 limit offset，翻到多深的页都只读取本页的数据
+     * cursorTime为空时查询第一页，否则查询(cursorTime, cursorId)之后的订单，最多返回pageSize + 1条
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    List<Orders> cursorQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 根据id查询订单
      * @param id
@@ -79,6 +110,42 @@ public interface OrderMapper {
     @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
     List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
+    /**
+     * 查询指定状态、下单时间早于指定时间的订单中最早的下单时间
+     * @param status
+     * @param orderTime
+     * @return
+     */
+    @Select("select min(order_time) from orders where status = #{status} and order_time < #{orderTime}")
+    LocalDateTime getMinOrderTimeByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
+
+    /**
+     * 查询指定状态、下单时间早于指定时间的订单id，最多limit条
+     * @param status
+     * @param orderTime
+     * @param limit
+     * @return
+     */
+    @Select("select id from orders where status = #{status} and order_time < #{orderTime} limit #{limit}")
+    List<Long> getIdsByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime, int limit);
+
+    /**
+     * 批量修改仍为指定状态的订单
+     * @param orders 修改后的状态、取消原因、取消时间
+     * @param ids
+     * @param status
+     * @return 修改的行数
+     */
+    int updateStatusByIdsAndStatus(Orders orders, List<Long> ids, Integer status);
+
+    /**
+     * 查询指定订单中为指定状态的订单id
+     * @param ids
+     * @param status
+     * @return
+     */
+    List<Long> getIdsByIdsAndStatus(List<Long> ids, Integer status);
+
     /**
      * 根据动态条件统计营业额数据
      * @param map
@@ -100,4 +167,37 @@ public interface OrderMapper {
      * @return
      */
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天分组统计指定时间区间内的订单总数、有效订单数、营业额和各状态订单数，一次查询得到整个区间的数据
+     * 没有订单的日期不会出现在结果中
+     * @param begin 开始时间(包含)
+     * @param end 结束时间(不包含)
+     * @return
+     */
+    List<DailyOrderStatisticsDTO> getDailyStatistics(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 统计指定时间区间内的订单总数、有效订单数、营业额和各状态订单数，一次扫描得到全部数据
+     * @param begin 开始时间(不包含)，为空时不限制
+     * @param end 结束时间(不包含)，为空时不限制
+     * @return
+     */
+    OrderStatisticsDTO getStatistics(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 查询指定状态的订单的id、状态和下单时间
+     * @param statusList
+     * @return
+     */
+    List<Orders> getByStatusIn(List<Integer> statusList);
+
+    /**
+     * 按id顺序查询id大于指定值的订单的id、订单号和手机号，用于分批重建搜索索引
+     * @param id
+     * @param limit
+     * @return
+     */
+    @Select("select id, number, phone from orders where id > #{id} order by id limit #{limit}")
+    List<Orders> getByIdGT(Long id, int limit);
 }
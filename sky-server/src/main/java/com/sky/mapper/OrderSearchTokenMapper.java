@@ -0,0 +1,25 @@
+package com.sky.mapper;
+
+import com.sky.entity.OrderSearchToken;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+@Mapper
+public interface OrderSearchTokenMapper {
+
+    /**
+     * 批量插入词条，已存在的忽略
+     * @param tokenList
+     */
+    void insertBatch(List<OrderSearchToken> tokenList);
+
+    /**
+     * 删除指定id区间内订单的词条
+     * @param beginId 开始id(包含)
+     * @param endId 结束id(包含)
+     */
+    @Delete("delete from order_search_token where order_id between #{beginId} and #{endId}")
+    void deleteByOrderIdRange(Long beginId, Long endId);
+}
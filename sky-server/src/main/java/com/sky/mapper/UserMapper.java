@@ -1,10 +1,12 @@
 package com.sky.mapper;
 
+import com.sky.dto.DailyUserStatisticsDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -47,4 +49,13 @@ public interface UserMapper {
      */
     @Select("select count(id) from user where create_time < #{endTime}")
     Integer countByEnd(LocalDateTime endTime);
+
+    /**
+     * 按天分组统计指定时间区间内的新增用户数
+     * 没有新增用户的日期不会出现在结果中
+     * @param begin 开始时间(包含)
+     * @param end 结束时间(不包含)
+     * @return
+     */
+    List<DailyUserStatisticsDTO> getDailyNewUsers(LocalDateTime begin, LocalDateTime end);
 }
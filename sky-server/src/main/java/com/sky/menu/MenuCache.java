@@ -0,0 +1,243 @@
+package com.sky.menu;
+
+import com.sky.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 用户端菜单(菜品、套餐)两级缓存
+ * 一级缓存：每个节点进程内的LRU缓存，直接保存可返回的列表，命中时无需访问redis和反序列化
+ * 二级缓存：redis，所有节点共享
+ * 管理端修改菜品、套餐后删除redis中的缓存，并通过redis频道通知所有节点清理进程内缓存
+ * 缓存key中带有版本号，清理某一类型的全部缓存时只需将版本号+1，旧版本的缓存不再被读取，由过期时间和定时清理删除
+ */
+@Component
+@Slf4j
+public class MenuCache implements MessageListener {
+
+    public static final String DISH = "dish"; // 菜品，redis key: dish_版本号_分类id
+    public static final String SETMEAL = "setmeal"; // 套餐，redis key: setmeal_版本号_分类id
+
+    private static final String CHANNEL = "menu:invalidate";
+    // 缓存版本号，key:menu:version:类型
+    private static final String VERSION_KEY_PREFIX = "menu:version:";
+    // redis缓存过期时间(小时)，旧版本的缓存过期后自动删除
+    private static final long REDIS_TTL_HOURS = 24;
+    // 每次SCAN返回的key数量
+    private static final int SCAN_COUNT = 1000;
+    // 清理某一类型的全部缓存时，消息中的分类id
+    private static final String ALL = "*";
+    // 进程内缓存最大条数(分类数)
+    private static final int NEAR_MAX_SIZE = 256;
+    // 进程内缓存过期时间(毫秒)，避免漏收清理消息时长时间返回旧数据
+    private static final long NEAR_TTL_MSEC = 5 * 60 * 1000;
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final LruCache<String, List<?>> nearCache = new LruCache<>(NEAR_MAX_SIZE, NEAR_TTL_MSEC);
+    // 本节点已知的各类型缓存版本号，版本号变化时通过频道消息更新
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    // redis缓存命中、未命中次数统计
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong redisMisses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 查询某一分类的菜单，依次查询进程内缓存、redis，都未命中时查询数据库并放入缓存
+     * 返回的列表会被多个请求共享，不能修改
+     * @param type   DISH或SETMEAL
+     * @param categoryId
+     * @param loader 查询数据库
+     * @return
+     */
+    public <T> List<T> get(String type, Long categoryId, Supplier<List<T>> loader) {
+        String key = key(type, categoryId);
+
+        List<T> list = (List<T>) nearCache.get(key);
+        if (list != null) {
+            return list;
+        }
+
+        list = (List<T>) redisTemplate.opsForValue().get(key);
+        if (list != null && list.size() > 0) {
+            redisHits.incrementAndGet();
+        } else {
+            redisMisses.incrementAndGet();
+            list = loader.get();
+            redisTemplate.opsForValue().set(key, list, REDIS_TTL_HOURS, TimeUnit.HOURS);
+        }
+        nearCache.put(key, list);
+        return list;
+    }
+
+    /**
+     * 清理某一分类的缓存
+     * @param type
+     * @param categoryId
+     */
+    public void evict(String type, Long categoryId) {
+        String key = key(type, categoryId);
+        redisTemplate.delete(key);
+        nearCache.remove(key);
+        publish(type + ":" + categoryId);
+    }
+
+    /**
+     * 清理某一类型的全部缓存
+     * 版本号+1，不再需要使用KEYS命令查找所有缓存key
+     * @param type
+     */
+    public void evictAll(String type) {
+        Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + type);
+        versions.put(type, version);
+        nearCache.clear();
+        publish(type + ":" + ALL + ":" + version);
+    }
+
+    /**
+     * 使用SCAN命令分批删除某一类型的缓存，不会像KEYS命令一样长时间阻塞redis
+     * @param type
+     * @param staleOnly 为true时只删除旧版本的缓存
+     * @return 删除的key数量
+     */
+    public long purge(String type, boolean staleOnly) {
+        String currentPrefix = type + "_" + version(type) + "_";
+        ScanOptions options = ScanOptions.scanOptions().match(type + "_*").count(SCAN_COUNT).build();
+        long deleted = 0;
+        List<String> batch = new ArrayList<>();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                if (staleOnly && key.startsWith(currentPrefix)) {
+                    continue;
+                }
+                batch.add(key);
+                if (batch.size() >= SCAN_COUNT) {
+                    deleted += stringRedisTemplate.delete(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleted += stringRedisTemplate.delete(batch);
+        }
+        if (!staleOnly) {
+            nearCache.clear();
+            publish(type + ":" + ALL + ":" + version(type));
+        }
+        return deleted;
+    }
+
+    /**
+     * 每天凌晨删除旧版本的缓存(过期时间之前提前释放内存)
+     */
+    @Scheduled(cron = "0 0 4 * * ?")
+    public void purgeStale() {
+        for (String type : new String[]{DISH, SETMEAL}) {
+            long deleted = purge(type, true);
+            log.info("删除旧版本的菜单缓存:{}，{}个", type, deleted);
+        }
+    }
+
+    /**
+     * 每30秒从redis同步一次版本号，漏收频道消息时也能及时读取新版本的缓存
+     */
+    @Scheduled(fixedDelay = 30 * 1000)
+    public void syncVersions() {
+        for (String type : versions.keySet()) {
+            Long version = loadVersion(type);
+            if (!version.equals(versions.put(type, version))) {
+                nearCache.clear();
+            }
+        }
+    }
+
+    /**
+     * 收到清理缓存的消息，清理本节点的进程内缓存
+     * @param message 类型:分类id 或 类型:*:新版本号
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(":");
+        String type = parts[0];
+        if (ALL.equals(parts[1])) {
+            versions.put(type, Long.valueOf(parts[2]));
+            // 进程内缓存条数很少，直接全部清空
+            nearCache.clear();
+        } else {
+            nearCache.remove(key(type, Long.valueOf(parts[1])));
+        }
+        log.debug("清理菜单缓存:{}", body);
+    }
+
+    /**
+     * 输出各级缓存命中情况
+     * @return
+     */
+    public String stats() {
+        long redisTotal = redisHits.get() + redisMisses.get();
+        return String.format("near[hits=%d, misses=%d, ratio=%.2f, size=%d], redis[hits=%d, misses=%d, ratio=%.2f]",
+                nearCache.getHits(), nearCache.getMisses(), nearCache.hitRatio(), nearCache.size(),
+                redisHits.get(), redisMisses.get(), redisTotal == 0 ? 0.0 : (double) redisHits.get() / redisTotal);
+    }
+
+    /**
+     * 每5分钟输出一次缓存命中情况
+     */
+    @Scheduled(fixedRate = 5 * 60 * 1000)
+    public void logStats() {
+        log.info("菜单缓存统计:{}", stats());
+    }
+
+    // 通知其它节点清理进程内缓存
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("发布菜单缓存清理消息失败:{}", message, e);
+        }
+    }
+
+    private String key(String type, Long categoryId) {
+        return type + "_" + version(type) + "_" + categoryId;
+    }
+
+    private long version(String type) {
+        return versions.computeIfAbsent(type, this::loadVersion);
+    }
+
+    private Long loadVersion(String type) {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + type);
+        return version == null ? 0L : Long.valueOf(version);
+    }
+}
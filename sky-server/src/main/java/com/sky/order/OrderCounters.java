@@ -0,0 +1,318 @@
+package com.sky.order;
+
+import com.sky.dto.OrderStatisticsDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 订单状态实时计数
+ * 订单状态变化时在redis中增减计数，管理端的订单统计和工作台只读取计数，不再统计订单表
+ * order:count:status 保存未完成订单(待付款、待接单、已接单、派送中)各状态的数量
+ * order:count:day:日期 保存当天下单的订单各状态的数量和订单总数
+ * order:live 保存未完成订单的当前状态和下单日期，状态变化时据此得知原状态，订单完成或取消后删除
+ * 计数与数据库可能因服务异常等原因产生偏差，由定时任务按数据库重新计算
+ * 重新计算期间的计数变化记录在order:count:journal中，替换为数据库中的数据后重放，不会丢失查询数据库之后发生的变化
+ */
+@Component
+@Slf4j
+public class OrderCounters {
+
+    private static final String LIVE_KEY = "order:live";
+    private static final String STATUS_KEY = "order:count:status";
+    private static final String DAY_KEY_PREFIX = "order:count:day:";
+    // 重新计算期间发生的计数变化
+    private static final String JOURNAL_KEY = "order:count:journal";
+    // 正在重新计算的标记，存在时计数变化同时写入JOURNAL_KEY
+    private static final String REBUILDING_KEY = "order:count:rebuilding";
+    private static final List<String> KEYS = Arrays.asList(LIVE_KEY, STATUS_KEY, DAY_KEY_PREFIX, JOURNAL_KEY, REBUILDING_KEY);
+    // 订单总数字段
+    private static final String ALL_FIELD = "all";
+    // 定时修正的锁，多个节点在一个修正周期内只有一个执行
+    private static final String RECONCILE_LOCK_KEY = "order:count:lock";
+    // 定时修正的间隔(毫秒)
+    private static final long RECONCILE_INTERVAL_MSEC = 10 * 60 * 1000;
+    // 每日计数的保留时间(秒)
+    private static final long DAY_TTL_SECONDS = TimeUnit.DAYS.toSeconds(3);
+    // 重新计算的最长时间(秒)，超过该时间未完成时标记过期，本次重新计算放弃
+    private static final long REBUILD_TIMEOUT_SECONDS = 60;
+
+    // 新订单计数和订单状态变化，KEYS依次为LIVE_KEY、STATUS_KEY、DAY_KEY_PREFIX、JOURNAL_KEY、REBUILDING_KEY
+    // today不为空时(重新计算后重放变化)只修改当天的计数，其它日期的计数没有被重新计算，已经包含了这次变化
+    private static final String FUNCTIONS =
+            // 新订单，订单已存在时不重复计数
+            "local function add(id, status, date, ttl, today) " +
+            "  if redis.call('hsetnx', KEYS[1], id, status .. ':' .. date) == 0 then return 0 end " +
+            "  redis.call('hincrby', KEYS[2], status, 1) " +
+            "  if today == nil or date == today then " +
+            "    local day = KEYS[3] .. date " +
+            "    redis.call('hincrby', day, status, 1) " +
+            "    redis.call('hincrby', day, 'all', 1) " +
+            "    redis.call('expire', day, ttl) " +
+            "  end " +
+            "  return 1 " +
+            "end " +
+            // 订单状态变化，原状态不在允许的状态中(计数已被重新计算或状态变化的顺序颠倒)时不修改
+            "local function move(id, target, finished, from, ttl, today) " +
+            "  local v = redis.call('hget', KEYS[1], id) " +
+            "  if not v then return 0 end " +
+            "  local sep = string.find(v, ':', 1, true) " +
+            "  local old = string.sub(v, 1, sep - 1) " +
+            "  local date = string.sub(v, sep + 1) " +
+            "  if not string.find(from, ',' .. old .. ',', 1, true) then return 0 end " +
+            "  redis.call('hincrby', KEYS[2], old, -1) " +
+            "  if today == nil or date == today then " +
+            "    local day = KEYS[3] .. date " +
+            "    redis.call('hincrby', day, old, -1) " +
+            "    redis.call('hincrby', day, target, 1) " +
+            "    if redis.call('ttl', day) < 0 then redis.call('expire', day, ttl) end " +
+            "  end " +
+            "  if finished == '1' then redis.call('hdel', KEYS[1], id) " +
+            "  else redis.call('hincrby', KEYS[2], target, 1) redis.call('hset', KEYS[1], id, target .. ':' .. date) end " +
+            "  return 1 " +
+            "end " +
+            "local function moveAll(ids, target, finished, from, ttl, today) " +
+            "  local n = 0 " +
+            "  for id in string.gmatch(ids, '[^,]+') do n = n + move(id, target, finished, from, ttl, today) end " +
+            "  return n " +
+            "end " +
+            // 正在重新计算时记录变化
+            "local function journal(entry) " +
+            "  if redis.call('exists', KEYS[5]) == 1 then redis.call('rpush', KEYS[4], cjson.encode(entry)) end " +
+            "end ";
+
+    // ARGV: 订单id 状态 下单日期 每日计数保留时间
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "journal({'a', ARGV[1], ARGV[2], ARGV[3]}) " +
+            "return add(ARGV[1], ARGV[2], ARGV[3], ARGV[4], nil)",
+            Long.class);
+
+    // ARGV: 订单id(多个用逗号分隔) 目标状态 是否完成(1/0) 允许的原状态(,1,2,) 每日计数保留时间
+    private static final DefaultRedisScript<Long> MOVE_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "journal({'m', ARGV[1], ARGV[2], ARGV[3], ARGV[4]}) " +
+            "return moveAll(ARGV[1], ARGV[2], ARGV[3], ARGV[4], ARGV[5], nil)",
+            Long.class);
+
+    // 开始重新计算：设置标记并清空变化记录，已有其它节点在重新计算时返回0
+    // ARGV: 标记过期时间(秒)
+    private static final DefaultRedisScript<Long> BEGIN_REBUILD_SCRIPT = new DefaultRedisScript<>(
+            "if not redis.call('set', KEYS[5], '1', 'NX', 'EX', ARGV[1]) then return 0 end " +
+            "redis.call('del', KEYS[4]) " +
+            "return 1",
+            Long.class);
+
+    // 用数据库中的数据替换计数，再重放重新计算期间发生的变化，整个过程是原子的，不会与新的变化交错
+    // 重放的变化可能已经包含在数据库数据中，add和move都是幂等的(订单已存在、原状态不符时不修改)，不会重复计数
+    // ARGV: 今天的日期 每日计数保留时间 状态计数字段数 当天计数字段数 之后依次为状态计数、当天计数、未完成订单的 字段,值
+    // 标记已过期(期间的变化可能没有记录)时不替换，返回-1
+    private static final DefaultRedisScript<Long> FINISH_REBUILD_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "if redis.call('exists', KEYS[5]) == 0 then return -1 end " +
+            "local today = ARGV[1] " +
+            "local ttl = ARGV[2] " +
+            "local day = KEYS[3] .. today " +
+            "redis.call('del', KEYS[1], KEYS[2], day) " +
+            "local statusEnd = 4 + tonumber(ARGV[3]) * 2 " +
+            "local dayEnd = statusEnd + tonumber(ARGV[4]) * 2 " +
+            "for i = 5, statusEnd, 2 do redis.call('hset', KEYS[2], ARGV[i], ARGV[i + 1]) end " +
+            "for i = statusEnd + 1, dayEnd, 2 do redis.call('hset', day, ARGV[i], ARGV[i + 1]) end " +
+            "for i = dayEnd + 1, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('expire', day, ttl) " +
+            "local entries = redis.call('lrange', KEYS[4], 0, -1) " +
+            "for _, e in ipairs(entries) do " +
+            "  local op = cjson.decode(e) " +
+            "  if op[1] == 'a' then add(op[2], op[3], op[4], ttl, today) " +
+            "  else moveAll(op[2], op[3], op[4], op[5], ttl, today) end " +
+            "end " +
+            "redis.call('del', KEYS[4], KEYS[5]) " +
+            "return #entries",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 新订单计数
+     * @param orderId
+     * @param orderTime
+     */
+    public void add(Long orderId, LocalDateTime orderTime) {
+        try {
+            stringRedisTemplate.execute(ADD_SCRIPT, KEYS,
+                    String.valueOf(orderId), String.valueOf(Orders.PENDING_PAYMENT),
+                    orderTime.toLocalDate().toString(), String.valueOf(DAY_TTL_SECONDS));
+        } catch (Exception e) {
+            // 计数失败不影响下单，由定时任务修正
+            log.warn("订单计数失败:{}", orderId, e);
+        }
+    }
+
+    /**
+     * 订单状态变化后修改计数
+     * @param orderId
+     * @param transition
+     */
+    public void move(Long orderId, OrderTransition transition) {
+        move(Collections.singletonList(orderId), transition);
+    }
+
+    /**
+     * 一批订单进行了同一种状态变化后修改计数
+     * @param orderIds
+     * @param transition
+     */
+    public void move(List<Long> orderIds, OrderTransition transition) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Integer target = transition.getTarget();
+        boolean finished = target.equals(Orders.COMPLETED) || target.equals(Orders.CANCELLED);
+        StringBuilder from = new StringBuilder(",");
+        transition.getFrom().forEach(status -> from.append(status).append(','));
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            stringRedisTemplate.execute(MOVE_SCRIPT, KEYS,
+                    ids, String.valueOf(target), finished ? "1" : "0",
+                    from.toString(), String.valueOf(DAY_TTL_SECONDS));
+        } catch (Exception e) {
+            log.warn("订单计数修改失败:{}", ids, e);
+        }
+    }
+
+    /**
+     * 查询未完成订单各状态的数量
+     * @return key:订单状态 value:数量
+     */
+    public Map<Integer, Integer> getStatusCounts() {
+        return read(STATUS_KEY);
+    }
+
+    /**
+     * 查询今天下单的订单各状态的数量
+     * @return key:订单状态 value:数量
+     */
+    public Map<Integer, Integer> getTodayStatusCounts() {
+        return read(DAY_KEY_PREFIX + LocalDate.now());
+    }
+
+    /**
+     * 查询今天的订单总数
+     * @return
+     */
+    public Integer getTodayCount() {
+        Object count = stringRedisTemplate.opsForHash().get(DAY_KEY_PREFIX + LocalDate.now(), ALL_FIELD);
+        return count == null ? 0 : Integer.valueOf((String) count);
+    }
+
+    /**
+     * 定时修正计数，服务启动后立即执行一次，之后每10分钟执行一次
+     * 计数由订单状态变化实时维护，定时修正只用于纠正服务异常等原因产生的偏差
+     * 多个节点中只有取得锁的节点执行
+     */
+    @Scheduled(fixedDelay = RECONCILE_INTERVAL_MSEC)
+    public void reconcile() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, "1",
+                RECONCILE_INTERVAL_MSEC - 60 * 1000, TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * 按数据库重新计算未完成订单和今天的计数
+     * @return 已有其它节点正在重新计算或超时放弃时返回false
+     */
+    public boolean rebuild() {
+        // 先开始记录变化再查询数据库，查询期间及之后的变化都会被重放
+        Long begun = stringRedisTemplate.execute(BEGIN_REBUILD_SCRIPT, KEYS, String.valueOf(REBUILD_TIMEOUT_SECONDS));
+        if (begun == null || begun == 0) {
+            return false;
+        }
+
+        LocalDate today = LocalDate.now();
+        // 未完成的订单数量有限，通过(status, order_time)索引查询
+        List<Orders> activeOrders = orderMapper.getByStatusIn(Arrays.asList(
+                Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS));
+        OrderStatisticsDTO todayStatistics = orderMapper.getStatistics(LocalDateTime.of(today, LocalTime.MIN), null);
+
+        Map<String, String> statusCounts = new HashMap<>();
+        for (Integer status : Arrays.asList(Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS)) {
+            statusCounts.put(String.valueOf(status), "0");
+        }
+        for (Orders orders : activeOrders) {
+            statusCounts.merge(String.valueOf(orders.getStatus()), "1", (a, b) -> String.valueOf(Integer.parseInt(a) + 1));
+        }
+
+        Map<String, String> dayCounts = new HashMap<>();
+        dayCounts.put(String.valueOf(Orders.PENDING_PAYMENT), String.valueOf(todayStatistics.getPendingPaymentCount()));
+        dayCounts.put(String.valueOf(Orders.TO_BE_CONFIRMED), String.valueOf(todayStatistics.getToBeConfirmedCount()));
+        dayCounts.put(String.valueOf(Orders.CONFIRMED), String.valueOf(todayStatistics.getConfirmedCount()));
+        dayCounts.put(String.valueOf(Orders.DELIVERY_IN_PROGRESS), String.valueOf(todayStatistics.getDeliveryInProgressCount()));
+        dayCounts.put(String.valueOf(Orders.COMPLETED), String.valueOf(todayStatistics.getValidOrderCount()));
+        dayCounts.put(String.valueOf(Orders.CANCELLED), String.valueOf(todayStatistics.getCancelledCount()));
+        dayCounts.put(ALL_FIELD, String.valueOf(todayStatistics.getOrderCount()));
+
+        List<String> args = new ArrayList<>();
+        args.add(today.toString());
+        args.add(String.valueOf(DAY_TTL_SECONDS));
+        args.add(String.valueOf(statusCounts.size()));
+        args.add(String.valueOf(dayCounts.size()));
+        statusCounts.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        dayCounts.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        for (Orders orders : activeOrders) {
+            args.add(String.valueOf(orders.getId()));
+            args.add(orders.getStatus() + ":" + orders.getOrderTime().toLocalDate());
+        }
+
+        Long replayed = stringRedisTemplate.execute(FINISH_REBUILD_SCRIPT, KEYS, args.toArray());
+        if (replayed == null || replayed < 0) {
+            log.warn("订单计数重新计算超时，本次放弃");
+            return false;
+        }
+        log.debug("订单计数已按数据库重新计算，未完成订单数:{}，重放变化数:{}", activeOrders.size(), replayed);
+        return true;
+    }
+
+    /**
+     * 读取计数hash，状态字段转为整数
+     * @param key
+     * @return
+     */
+    private Map<Integer, Integer> read(String key) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            if (ALL_FIELD.equals(entry.getKey())) {
+                continue;
+            }
+            // 计数出现偏差时可能为负数，按0处理
+            counts.put(Integer.valueOf((String) entry.getKey()), Math.max(0, Integer.parseInt((String) entry.getValue())));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,51 @@
+package com.sky.order;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.OrderBusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 订单游标分页的游标
+ * 记录上一页最后一个订单的(下单时间, id)，下一页从该位置之后开始查询，不需要跳过前面的记录
+ * 对外传递时编码为base64字符串，前端只需原样传回
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCursor {
+
+    private final LocalDateTime orderTime;
+
+    private final Long id;
+
+    /**
+     * 编码为字符串
+     * @return
+     */
+    public String encode() {
+        String raw = orderTime + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析前端传回的游标
+     * @param cursor
+     * @return 游标为空时返回null，表示查询第一页
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(',');
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, index)), Long.valueOf(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new OrderBusinessException(MessageConstant.ORDER_CURSOR_INVALID);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sky.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 待支付订单的超时队列
+ * 订单id保存在redis有序集合中，分数为支付截止时间，到期后由定时任务取出并取消订单
+ */
+@Component
+@Slf4j
+public class OrderExpiryQueue {
+
+    // 订单支付超时时间(分钟)
+    public static final int PAYMENT_TIMEOUT_MINUTES = 15;
+
+    private static final String KEY = "order:expiry";
+    // 取出并删除已到期的订单，多个节点同时执行时同一个订单只会被一个节点取出
+    private static final DefaultRedisScript<List> POP_DUE_SCRIPT = new DefaultRedisScript<>(
+            "local items = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'withscores', 'limit', 0, ARGV[2]) " +
+            "for i = 1, #items, 2 do redis.call('zrem', KEYS[1], items[i]) end " +
+            "return items",
+            List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 加入超时队列
+     * @param orderId
+     * @param orderTime 下单时间
+     */
+    public void add(Long orderId, LocalDateTime orderTime) {
+        long deadline = toMillis(orderTime.plusMinutes(PAYMENT_TIMEOUT_MINUTES));
+        try {
+            stringRedisTemplate.opsForZSet().add(KEY, String.valueOf(orderId), deadline);
+        } catch (Exception e) {
+            // 加入失败时由定时任务兜底取消
+            log.warn("订单加入超时队列失败:{}", orderId, e);
+        }
+    }
+
+    /**
+     * 从超时队列中移除(订单已支付或已取消)
+     * @param orderId
+     */
+    public void remove(Long orderId) {
+        try {
+            stringRedisTemplate.opsForZSet().remove(KEY, String.valueOf(orderId));
+        } catch (Exception e) {
+            log.warn("订单移出超时队列失败:{}", orderId, e);
+        }
+    }
+
+    /**
+     * 取出已到期的订单
+     * @param limit 最多取出的订单数
+     * @return key:订单id value:下单时间
+     */
+    public Map<Long, LocalDateTime> popDue(int limit) {
+        List<String> items = stringRedisTemplate.execute(POP_DUE_SCRIPT, Collections.singletonList(KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit));
+        Map<Long, LocalDateTime> result = new LinkedHashMap<>();
+        if (items == null) {
+            return result;
+        }
+        for (int i = 0; i + 1 < items.size(); i += 2) {
+            long deadline = Double.valueOf(items.get(i + 1)).longValue();
+            LocalDateTime orderTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(deadline), ZoneId.systemDefault())
+                    .minusMinutes(PAYMENT_TIMEOUT_MINUTES);
+            result.put(Long.valueOf(items.get(i)), orderTime);
+        }
+        return result;
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,285 @@
+package com.sky.order;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.OrderNumberProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器(雪花算法)
+ * 整个应用只有一个实例，订单号由 时间戳(41位) + 数据中心id(5位) + 机器id(5位) + 序列号(12位) 组成
+ * 机器id可以在配置文件中指定，未指定时从redis中租用，保证多个节点的机器id不重复
+ * 租用的机器id在租约到期前未能续租时停止生成订单号，直到重新租用到机器id，避免与之后租用该机器id的节点重复
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    // 起始时间 2023-01-01 00:00:00
+    private static final long EPOCH = 1672502400000L;
+    private static final long WORKER_ID_BITS = 5L;
+    private static final long DATACENTER_ID_BITS = 5L;
+    private static final long SEQUENCE_BITS = 12L;
+    private static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+    private static final long MAX_DATACENTER_ID = ~(-1L << DATACENTER_ID_BITS);
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final long DATACENTER_ID_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+    private static final long TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS + DATACENTER_ID_BITS;
+
+    // 机器id租约，key:order:worker:数据中心id:机器id value:当前节点标识
+    private static final String WORKER_KEY_PREFIX = "order:worker:";
+    // 只有租约仍属于当前节点时才续租/释放
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private OrderNumberProperties orderNumberProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 当前节点标识，用于识别租约的持有者
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    private long datacenterId;
+    private volatile long workerId;
+    // 是否为从redis租用的机器id
+    private boolean leased;
+    // 租约到期时间，超过后停止生成订单号
+    private volatile long leaseExpireTime;
+
+    private long lastTimestamp = -1L;
+    private long sequence = 0L;
+    // 是否处于时钟回拨状态，避免重复输出日志
+    private boolean clockBackward;
+
+    private BlockingQueue<Long> buffer;
+
+    @PostConstruct
+    public void init() {
+        datacenterId = orderNumberProperties.getDatacenterId();
+        if (datacenterId < 0 || datacenterId > MAX_DATACENTER_ID) {
+            throw new IllegalArgumentException("数据中心id必须在0~" + MAX_DATACENTER_ID + "之间");
+        }
+        if (orderNumberProperties.getWorkerId() < 0) {
+            leased = true;
+            long start = System.currentTimeMillis();
+            workerId = leaseWorkerId();
+            leaseExpireTime = start + orderNumberProperties.getLeaseTtl();
+        } else {
+            if (orderNumberProperties.getWorkerId() > MAX_WORKER_ID) {
+                throw new IllegalArgumentException("机器id必须在0~" + MAX_WORKER_ID + "之间");
+            }
+            workerId = orderNumberProperties.getWorkerId();
+        }
+        log.info("订单号生成器初始化，数据中心id:{}，机器id:{}", datacenterId, workerId);
+
+        if (orderNumberProperties.getBufferSize() > 0) {
+            buffer = new ArrayBlockingQueue<>(orderNumberProperties.getBufferSize());
+            Thread thread = new Thread(this::fillBuffer, "order-number-buffer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 生成订单号
+     * JS 的整数最大只支持 53 位，因此转换成字符串传递给前端
+     * @return
+     */
+    public String nextNumber() {
+        checkLease();
+        if (buffer != null) {
+            Long id;
+            while ((id = buffer.poll()) != null) {
+                // 丢弃机器id变更前预生成的订单号
+                if (workerIdOf(id) == workerId) {
+                    return String.valueOf(id);
+                }
+            }
+        }
+        // 缓冲区已用完(或未开启)，直接生成
+        return String.valueOf(nextId());
+    }
+
+    /**
+     * 生成下一个id
+     * @return
+     */
+    public synchronized long nextId() {
+        checkLease();
+        long timestamp = System.currentTimeMillis();
+
+        // 时钟回拨
+        if (timestamp < lastTimestamp) {
+            long offset = lastTimestamp - timestamp;
+            if (offset <= orderNumberProperties.getMaxBackwardMs()) {
+                // 回拨时间较短，等待时钟追上
+                timestamp = waitUntil(lastTimestamp);
+            } else {
+                // 回拨时间较长，沿用上次的时间戳继续生成，保证id递增不重复
+                if (!clockBackward) {
+                    clockBackward = true;
+                    log.warn("系统时钟回拨{}ms，沿用上次的时间戳生成订单号", offset);
+                }
+                timestamp = lastTimestamp;
+            }
+        } else {
+            clockBackward = false;
+        }
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 同一毫秒内序列号用完，使用下一毫秒
+                // 时钟正常时等待下一毫秒，时钟仍处于回拨状态时直接使用下一毫秒的时间戳
+                timestamp = System.currentTimeMillis() >= lastTimestamp ? waitUntil(lastTimestamp + 1) : lastTimestamp + 1;
+            }
+        } else {
+            sequence = 0L;
+        }
+        lastTimestamp = timestamp;
+
+        return ((timestamp - EPOCH) << TIMESTAMP_SHIFT)
+                | (datacenterId << DATACENTER_ID_SHIFT)
+                | (workerId << WORKER_ID_SHIFT)
+                | sequence;
+    }
+
+    /**
+     * 续租机器id，续租失败(租约已过期并被其它节点占用)时重新租用
+     * redis不可用时继续使用原机器id直到租约到期，到期后停止生成订单号，直到续租或重新租用成功
+     */
+    @Scheduled(fixedDelay = 20000)
+    public void renewLease() {
+        if (!leased) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Long result = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(workerKey(workerId)),
+                    instanceId, String.valueOf(orderNumberProperties.getLeaseTtl()));
+            if (result != null && result == 1) {
+                leaseExpireTime = start + orderNumberProperties.getLeaseTtl();
+                return;
+            }
+
+            // 租约已失效，原机器id可能已被其它节点占用，立即停止生成
+            leaseExpireTime = 0;
+            long newWorkerId = leaseWorkerId();
+            log.warn("机器id租约已失效:{}，重新租用机器id:{}", workerId, newWorkerId);
+            synchronized (this) {
+                workerId = newWorkerId;
+                leaseExpireTime = start + orderNumberProperties.getLeaseTtl();
+                // 清空使用原机器id预生成的订单号
+                if (buffer != null) {
+                    buffer.clear();
+                }
+            }
+        } catch (Exception e) {
+            log.error("机器id续租失败:{}", workerId, e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!leased) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(workerKey(workerId)), instanceId);
+        } catch (Exception e) {
+            log.warn("释放机器id失败:{}", workerId, e);
+        }
+    }
+
+    /**
+     * 从redis中租用一个未被占用的机器id
+     * @return
+     */
+    private long leaseWorkerId() {
+        for (long id = 0; id <= MAX_WORKER_ID; id++) {
+            Boolean success = stringRedisTemplate.opsForValue().setIfAbsent(workerKey(id), instanceId,
+                    orderNumberProperties.getLeaseTtl(), TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(success)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("数据中心" + datacenterId + "下的机器id已全部被占用");
+    }
+
+    /**
+     * 租约是否有效，使用配置的机器id时始终有效
+     * @return
+     */
+    private boolean leaseValid() {
+        return !leased || System.currentTimeMillis() < leaseExpireTime;
+    }
+
+    private void checkLease() {
+        if (!leaseValid()) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NUMBER_UNAVAILABLE);
+        }
+    }
+
+    private long workerIdOf(long id) {
+        return (id >> WORKER_ID_SHIFT) & MAX_WORKER_ID;
+    }
+
+    private String workerKey(long id) {
+        return WORKER_KEY_PREFIX + datacenterId + ":" + id;
+    }
+
+    /**
+     * 等待时钟到达指定时间
+     * @param timestamp
+     * @return
+     */
+    private long waitUntil(long timestamp) {
+        long now = System.currentTimeMillis();
+        while (now < timestamp) {
+            Thread.yield();
+            now = System.currentTimeMillis();
+        }
+        return now;
+    }
+
+    /**
+     * 预生成订单号，缓冲区满时阻塞等待
+     */
+    private void fillBuffer() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (!leaseValid()) {
+                    // 租约已过期，等待重新租用机器id
+                    TimeUnit.MILLISECONDS.sleep(500);
+                    continue;
+                }
+                buffer.put(nextId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("预生成订单号失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.sky.order;
+
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单分页查询总数的缓存
+ * 游标分页翻页时不需要精确的总数，同一查询条件的count结果缓存一段时间，避免每次翻页都统计全部符合条件的订单
+ */
+@Component
+@Slf4j
+public class OrderPageTotalCache {
+
+    private static final String KEY_PREFIX = "order:page:total:";
+    // 总数缓存时间(秒)，期间新增或状态变化的订单不反映在总数中
+    private static final long EXPIRE_SECONDS = 60;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 获取符合查询条件的订单总数，缓存中不存在或redis不可用时查询数据库
+     * @param query
+     * @return
+     */
+    public long get(OrdersPageQueryDTO query) {
+        String key = KEY_PREFIX + DigestUtils.md5DigestAsHex(condition(query).getBytes(StandardCharsets.UTF_8));
+        String total = redisGet(key);
+        if (total != null) {
+            return Long.parseLong(total);
+        }
+
+        Long count = orderMapper.countByQuery(query);
+        redisSet(key, String.valueOf(count));
+        return count;
+    }
+
+    /**
+     * 查询条件拼接为字符串，不包含分页参数
+     * @param query
+     * @return
+     */
+    private String condition(OrdersPageQueryDTO query) {
+        return query.getNumber() + "|" + query.getPhone() + "|" + query.getDishName() + "|" + query.getUserId()
+                + "|" + query.getStatus() + "|" + query.getBeginTime() + "|" + query.getEndTime();
+    }
+
+    // redis不可用时降级为直接统计数据库，不影响翻页
+    private String redisGet(String key) {
+        try {
+            return stringRedisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取订单总数缓存失败:{}", key, e);
+            return null;
+        }
+    }
+
+    private void redisSet(String key, String value) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, value, EXPIRE_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入订单总数缓存失败:{}", key, e);
+        }
+    }
+}
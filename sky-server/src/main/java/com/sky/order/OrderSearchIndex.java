@@ -0,0 +1,206 @@
+package com.sky.order;
+
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.OrderSearchToken;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.OrderSearchTokenMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 订单搜索索引
+ * 将订单号、手机号和菜品名称拆分为词条保存在order_search_token表中，搜索时先按词条查出订单id，
+ * 再只对这些订单校验 like 条件，不随订单表的增长而变慢
+ * 订单号：连续3个字符，搜索至少3个字符时使用索引
+ * 手机号：后缀(至少4位)，搜索至少4位时按后缀匹配
+ * 菜品名称：单个字符和连续2个字符，搜索1个字符时按单字查询，否则按相邻2个字符查询
+ */
+@Component
+@Slf4j
+public class OrderSearchIndex {
+
+    private static final String NUMBER_PREFIX = "n:";
+    private static final String PHONE_PREFIX = "p:";
+    private static final String DISH_PREFIX = "d:";
+    private static final int NUMBER_GRAM = 3;
+    private static final int PHONE_MIN_SUFFIX = 4;
+    // 词条最大长度，与表字段长度一致
+    private static final int MAX_TOKEN_LENGTH = 32;
+    // 重建索引时每批处理的订单数
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private OrderSearchTokenMapper orderSearchTokenMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 是否正在重建索引
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * 为新订单建立索引，与订单在同一个事务中写入
+     * @param orders
+     * @param orderDetailList
+     */
+    public void add(Orders orders, List<OrderDetail> orderDetailList) {
+        List<OrderSearchToken> tokenList = new ArrayList<>();
+        for (String token : indexTokens(orders, orderDetailList)) {
+            tokenList.add(new OrderSearchToken(token, orders.getId()));
+        }
+        if (!tokenList.isEmpty()) {
+            orderSearchTokenMapper.insertBatch(tokenList);
+        }
+    }
+
+    /**
+     * 生成搜索条件对应的词条，订单需包含所有词条
+     * 条件太短无法使用索引时不生成该条件的词条，由 like 条件查询
+     * @param query
+     * @return
+     */
+    public List<String> queryTokens(OrdersPageQueryDTO query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        String number = query.getNumber();
+        if (number != null && number.length() >= NUMBER_GRAM) {
+            tokens.addAll(grams(NUMBER_PREFIX, number, NUMBER_GRAM));
+        }
+        String phone = query.getPhone();
+        if (phone != null && phone.length() >= PHONE_MIN_SUFFIX) {
+            tokens.add(limit(PHONE_PREFIX + phone));
+        }
+        String dishName = query.getDishName();
+        if (dishName != null && !dishName.isEmpty()) {
+            tokens.addAll(grams(DISH_PREFIX, dishName, dishName.length() == 1 ? 1 : 2));
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * 在后台线程中按订单id分批重建全部订单的索引
+     * @return 已有重建任务在执行时返回false
+     */
+    public boolean rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("重建订单搜索索引失败", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "order-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 按订单id分批重建索引，每批先删除该id区间内的词条再重新写入
+     * 每批的删除和写入在同一个事务中执行，重建期间的搜索不会查不到该批订单
+     */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int total = 0;
+        List<Orders> ordersList;
+        do {
+            ordersList = orderMapper.getByIdGT(lastId, REBUILD_BATCH_SIZE);
+            if (ordersList.isEmpty()) {
+                break;
+            }
+            List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+            Map<Long, List<OrderDetail>> orderDetailMap = orderDetailMapper.getByOrderIds(orderIds).stream()
+                    .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+
+            List<OrderSearchToken> tokenList = new ArrayList<>();
+            for (Orders orders : ordersList) {
+                for (String token : indexTokens(orders, orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()))) {
+                    tokenList.add(new OrderSearchToken(token, orders.getId()));
+                }
+            }
+
+            Long firstId = orderIds.get(0);
+            lastId = orderIds.get(orderIds.size() - 1);
+            Long endId = lastId;
+            transactionTemplate.executeWithoutResult(status -> {
+                orderSearchTokenMapper.deleteByOrderIdRange(firstId, endId);
+                if (!tokenList.isEmpty()) {
+                    orderSearchTokenMapper.insertBatch(tokenList);
+                }
+            });
+            total += ordersList.size();
+        } while (ordersList.size() == REBUILD_BATCH_SIZE);
+        log.info("订单搜索索引重建完成，订单数:{}，耗时{}ms", total, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 生成订单的全部词条
+     * @param orders
+     * @param orderDetailList
+     * @return
+     */
+    private Set<String> indexTokens(Orders orders, List<OrderDetail> orderDetailList) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (orders.getNumber() != null) {
+            tokens.addAll(grams(NUMBER_PREFIX, orders.getNumber(), NUMBER_GRAM));
+        }
+        String phone = orders.getPhone();
+        if (phone != null) {
+            for (int i = 0; i + PHONE_MIN_SUFFIX <= phone.length(); i++) {
+                tokens.add(limit(PHONE_PREFIX + phone.substring(i)));
+            }
+        }
+        for (OrderDetail orderDetail : orderDetailList) {
+            if (orderDetail.getName() != null) {
+                tokens.addAll(grams(DISH_PREFIX, orderDetail.getName(), 1));
+                tokens.addAll(grams(DISH_PREFIX, orderDetail.getName(), 2));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 按字符(码点)拆分出所有长度为n的连续片段，不足n个字符时返回整个字符串
+     * @param prefix
+     * @param text
+     * @param n
+     * @return
+     */
+    private Collection<String> grams(String prefix, String text, int n) {
+        int[] codePoints = text.codePoints().toArray();
+        Set<String> grams = new LinkedHashSet<>();
+        if (codePoints.length <= n) {
+            grams.add(limit(prefix + text));
+            return grams;
+        }
+        for (int i = 0; i + n <= codePoints.length; i++) {
+            grams.add(prefix + new String(codePoints, i, n));
+        }
+        return grams;
+    }
+
+    private String limit(String token) {
+        return token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token;
+    }
+}
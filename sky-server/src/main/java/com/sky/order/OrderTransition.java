@@ -0,0 +1,58 @@
+package com.sky.order;
+
+import com.sky.entity.Orders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单状态流转
+ * 每种操作只允许从指定的状态转到目标状态，通过一条带状态条件的update完成：
+ * update orders set status = 目标状态 ... where id = ? and status in (允许的当前状态)
+ * 修改行数为0说明订单不存在或状态已被其它请求修改，不需要先查询订单再判断状态
+ */
+public enum OrderTransition {
+
+    // 用户支付：待付款 -> 待接单
+    PAY(Orders.TO_BE_CONFIRMED, false, Orders.PENDING_PAYMENT),
+    // 支付超时：待付款 -> 已取消
+    TIMEOUT_CANCEL(Orders.CANCELLED, false, Orders.PENDING_PAYMENT),
+    // 商家接单：待接单 -> 已接单
+    CONFIRM(Orders.CONFIRMED, false, Orders.TO_BE_CONFIRMED),
+    // 商家拒单：待接单 -> 已取消，已支付的订单退款
+    REJECT(Orders.CANCELLED, true, Orders.TO_BE_CONFIRMED),
+    // 商家取消订单：未完成的订单 -> 已取消，已支付的订单退款
+    ADMIN_CANCEL(Orders.CANCELLED, true, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS),
+    // 用户取消订单：商家接单前 -> 已取消，已支付的订单退款
+    USER_CANCEL(Orders.CANCELLED, true, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED),
+    // 派送订单：已接单 -> 派送中
+    DELIVER(Orders.DELIVERY_IN_PROGRESS, false, Orders.CONFIRMED),
+    // 完成订单：派送中 -> 已完成
+    COMPLETE(Orders.COMPLETED, false, Orders.DELIVERY_IN_PROGRESS);
+
+    // 目标状态
+    private final Integer target;
+    // 是否将已支付的订单改为退款状态
+    private final boolean refund;
+    // 允许流转的当前状态
+    private final List<Integer> from;
+
+    OrderTransition(Integer target, boolean refund, Integer... from) {
+        this.target = target;
+        this.refund = refund;
+        this.from = Collections.unmodifiableList(Arrays.asList(from));
+    }
+
+    public Integer getTarget() {
+        return target;
+    }
+
+    public boolean isRefund() {
+        return refund;
+    }
+
+    public List<Integer> getFrom() {
+        return from;
+    }
+}
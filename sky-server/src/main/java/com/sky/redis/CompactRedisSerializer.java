@@ -0,0 +1,144 @@
+package com.sky.redis;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * redis value序列化器
+ * 格式：1字节格式版本号 + 1字节标记 + 数据，数据为带类型信息的json，超过一定长度时使用deflate压缩
+ * 相比JDK序列化体积更小、速度更快；版本号用于兼容升级，不是本格式的数据(升级前JDK序列化写入的缓存)仍按JDK序列化读取
+ */
+@Slf4j
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    // 格式版本号，数据格式变化时+1，旧版本的数据读取时视为缓存未命中
+    static final byte FORMAT_VERSION = 1;
+    // JDK序列化数据的第一个字节(0xACED)，与格式版本号不会冲突
+    private static final byte JDK_MAGIC = (byte) 0xAC;
+
+    private static final byte FLAG_PLAIN = 0;
+    private static final byte FLAG_DEFLATE = 1;
+
+    // 数据超过该长度(字节)时压缩
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public CompactRedisSerializer() {
+        // 只允许反序列化项目中的类和常用的JDK类型，数据中带有其它类名时反序列化失败
+        // 不能使用allowIfBaseType(Object.class)：读取时的基础类型总是Object，会放行任意类
+        // String、Integer等final类型不写入类型信息，不需要放行java.lang
+        BasicPolymorphicTypeValidator validator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.sky.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.math.")
+                .allowIfSubType("java.time.")
+                .build();
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                // 类增加或删除属性后，已缓存的数据仍能读取
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .activateDefaultTyping(validator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+    }
+
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            byte flag = FLAG_PLAIN;
+            byte[] data = json;
+            if (json.length > COMPRESS_THRESHOLD) {
+                flag = FLAG_DEFLATE;
+                data = deflate(json);
+            }
+            byte[] bytes = new byte[data.length + 2];
+            bytes[0] = FORMAT_VERSION;
+            bytes[1] = flag;
+            System.arraycopy(data, 0, bytes, 2, data.length);
+            return bytes;
+        } catch (Exception e) {
+            throw new SerializationException("redis数据序列化失败", e);
+        }
+    }
+
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JDK_MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes[0] != FORMAT_VERSION || bytes.length < 2) {
+            // 其它版本写入的数据，视为缓存未命中
+            log.warn("redis数据格式版本不匹配:{}", bytes[0]);
+            return null;
+        }
+        try {
+            byte[] json;
+            if (bytes[1] == FLAG_DEFLATE) {
+                json = inflate(bytes, 2, bytes.length - 2);
+            } else {
+                json = new byte[bytes.length - 2];
+                System.arraycopy(bytes, 2, json, 0, json.length);
+            }
+            return objectMapper.readValue(json, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("redis数据反序列化失败", e);
+        }
+    }
+
+    private byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] data, int offset, int length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("压缩数据不完整");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
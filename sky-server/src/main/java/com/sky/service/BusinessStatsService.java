@@ -0,0 +1,45 @@
+package com.sky.service;
+
+import com.sky.entity.DailyBusinessStats;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BusinessStatsService {
+
+    /**
+     * 获取指定日期区间内每天的营业数据
+     * 已结束的日期读取汇总表，当天实时统计
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end);
+
+    /**
+     * 重新统计指定日期区间内每天的营业数据并写入汇总表
+     * @param begin
+     * @param end
+     */
+    void refresh(LocalDate begin, LocalDate end);
+
+    /**
+     * 订单状态变化后更新对应日期的汇总数据
+     * @param orderTimes 发生变化的订单的下单时间
+     */
+    void onOrdersChanged(List<LocalDateTime> orderTimes);
+
+    /**
+     * 记录状态发生变化的订单，由定时任务批量查询下单日期后更新汇总数据
+     * 用于状态流转时没有查询订单、不知道下单时间的场景
+     * @param orderId
+     */
+    void onOrderChanged(Long orderId);
+
+    /**
+     * 更新已记录的状态变化订单对应日期的汇总数据
+     * @return 处理的订单数
+     */
+    int flushChangedOrders();
+}
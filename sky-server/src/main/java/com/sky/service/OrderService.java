@@ -1,6 +1,7 @@
 package com.sky.service;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
@@ -39,6 +40,15 @@ public interface OrderService {
      */
     PageResult pageQuery4User(int page, int pageSize, Integer status);
 
+    /**
+     * 用户端订单游标分页查询
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    CursorPageResult cursorQuery4User(String cursor, int pageSize, Integer status);
+
     /**
      * 查询订单详情
      * @param id
@@ -65,6 +75,13 @@ public interface OrderService {
      */
     PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 条件搜索订单，游标分页
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -105,15 +122,25 @@ public interface OrderService {
      * 处理超时订单的方法
      * @param pendingPayment
      * @param now
+     * @return 处理的订单数
+     */
+    int processTimeoutOrder(Integer pendingPayment, LocalDateTime now);
+
+    /**
+     * 取消支付超时的订单
+     * @param id
+     * @param orderTime
+     * @return 订单仍为待付款状态并被取消时返回true
      */
-    void processTimeoutOrder(Integer pendingPayment, LocalDateTime now);
+    boolean cancelTimeoutOrder(Long id, LocalDateTime orderTime);
 
     /**
      * 处理一直处于派送中状态的订单
      * @param deliveryInProgress
      * @param now
+     * @return 处理的订单数
      */
-    void processDeliveryOrder(Integer deliveryInProgress, LocalDateTime now);
+    int processDeliveryOrder(Integer deliveryInProgress, LocalDateTime now);
 
     /**
      * 客户催单
@@ -0,0 +1,190 @@
+package com.sky.service.impl;
+
+import com.sky.dto.DailyOrderStatisticsDTO;
+import com.sky.dto.DailyUserStatisticsDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class BusinessStatsServiceImpl implements BusinessStatsService {
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    // 状态发生变化、等待更新汇总数据的订单id
+    private final Set<Long> changedOrderIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 获取指定日期区间内每天的营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    public List<DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, DailyBusinessStats> statsMap = new HashMap<>();
+
+        // 已结束的日期，读取汇总表
+        if (begin.isBefore(today)) {
+            LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+            List<DailyBusinessStats> statsList = dailyBusinessStatsMapper.getByDateRange(begin, closedEnd);
+            statsList.forEach(stats -> statsMap.put(stats.getStatDate(), stats));
+
+            // 汇总表中缺少部分日期(如汇总表上线前的历史数据)，补算后写入汇总表
+            if (statsList.size() < ChronoUnit.DAYS.between(begin, closedEnd) + 1) {
+                List<DailyBusinessStats> missing = compute(begin, closedEnd).stream()
+                        .filter(stats -> !statsMap.containsKey(stats.getStatDate()))
+                        .collect(Collectors.toList());
+                if (!missing.isEmpty()) {
+                    dailyBusinessStatsMapper.upsertBatch(missing);
+                    missing.forEach(stats -> statsMap.put(stats.getStatDate(), stats));
+                    log.info("补充汇总营业数据:{}天", missing.size());
+                }
+            }
+        }
+
+        // 当天(及之后)的数据仍在变化，实时统计
+        if (!end.isBefore(today)) {
+            LocalDate liveBegin = begin.isAfter(today) ? begin : today;
+            compute(liveBegin, end).forEach(stats -> statsMap.put(stats.getStatDate(), stats));
+        }
+
+        List<DailyBusinessStats> result = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            result.add(statsMap.get(date));
+        }
+        return result;
+    }
+
+    /**
+     * 重新统计指定日期区间内每天的营业数据并写入汇总表
+     * @param begin
+     * @param end
+     */
+    public void refresh(LocalDate begin, LocalDate end) {
+        List<DailyBusinessStats> statsList = compute(begin, end);
+        dailyBusinessStatsMapper.upsertBatch(statsList);
+    }
+
+    /**
+     * 订单状态变化后更新对应日期的汇总数据
+     * 当天的数据是实时统计的，只有下单时间在今天之前的订单需要更新汇总表
+     * @param orderTimes
+     */
+    public void onOrdersChanged(List<LocalDateTime> orderTimes) {
+        LocalDate today = LocalDate.now();
+        Set<LocalDate> dates = new TreeSet<>();
+        for (LocalDateTime orderTime : orderTimes) {
+            if (orderTime != null && orderTime.toLocalDate().isBefore(today)) {
+                dates.add(orderTime.toLocalDate());
+            }
+        }
+        for (LocalDate date : dates) {
+            refresh(date, date);
+        }
+    }
+
+    /**
+     * 记录状态发生变化的订单
+     * @param orderId
+     */
+    public void onOrderChanged(Long orderId) {
+        changedOrderIds.add(orderId);
+    }
+
+    /**
+     * 一次查询得到已记录订单的下单日期，只更新今天之前的日期
+     * 服务重启时未处理的订单由每天的定时汇总修正
+     * @return
+     */
+    public int flushChangedOrders() {
+        if (changedOrderIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(changedOrderIds);
+        changedOrderIds.removeAll(ids);
+
+        LocalDateTime todayBegin = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
+        Set<LocalDate> dates = new TreeSet<>(orderMapper.getOrderDatesByIdsAndOrderTimeLT(ids, todayBegin));
+        for (LocalDate date : dates) {
+            refresh(date, date);
+        }
+        return ids.size();
+    }
+
+    /**
+     * 按天分组统计订单表和用户表，得到区间内每天的营业数据，没有数据的日期补0
+     * @param begin
+     * @param end
+     * @return
+     */
+    private List<DailyBusinessStats> compute(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+
+        Map<LocalDate, DailyOrderStatisticsDTO> orderMap = orderMapper.getDailyStatistics(beginTime, endTime)
+                .stream()
+                .collect(Collectors.toMap(DailyOrderStatisticsDTO::getOrderDate, Function.identity()));
+        Map<LocalDate, Integer> newUserMap = userMapper.getDailyNewUsers(beginTime, endTime)
+                .stream()
+                .collect(Collectors.toMap(DailyUserStatisticsDTO::getCreateDate, DailyUserStatisticsDTO::getNewUsers));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<DailyBusinessStats> statsList = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            DailyOrderStatisticsDTO daily = orderMap.get(date);
+            DailyBusinessStats stats = DailyBusinessStats.builder()
+                    .statDate(date)
+                    .newUsers(newUserMap.getOrDefault(date, 0))
+                    .updateTime(now)
+                    .build();
+            if (daily == null) {
+                stats.setTurnover(BigDecimal.ZERO);
+                stats.setTotalOrders(0);
+                stats.setValidOrders(0);
+                stats.setPendingPaymentOrders(0);
+                stats.setToBeConfirmedOrders(0);
+                stats.setConfirmedOrders(0);
+                stats.setDeliveryInProgressOrders(0);
+                stats.setCancelledOrders(0);
+            } else {
+                stats.setTurnover(daily.getTurnover() == null ? BigDecimal.ZERO : BigDecimal.valueOf(daily.getTurnover()));
+                stats.setTotalOrders(daily.getOrderCount());
+                stats.setValidOrders(daily.getValidOrderCount());
+                stats.setPendingPaymentOrders(daily.getPendingPaymentCount());
+                stats.setToBeConfirmedOrders(daily.getToBeConfirmedCount());
+                stats.setConfirmedOrders(daily.getConfirmedCount());
+                stats.setDeliveryInProgressOrders(daily.getDeliveryInProgressCount());
+                stats.setCancelledOrders(daily.getCancelledCount());
+            }
+            statsList.add(stats);
+        }
+        return statsList;
+    }
+}
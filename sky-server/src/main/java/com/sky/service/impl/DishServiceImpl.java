@@ -18,8 +18,8 @@ import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.DishService;
 import com.sky.vo.DishVO;
+import com.sky.utils.BeanCopyUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -51,7 +51,7 @@ public class DishServiceImpl implements DishService {
 
         // 由于dishDTO包括菜品口味flavour,而向菜品表插入数据时不需要插入flavour,因此new一个Dish对象
         Dish dish = new Dish();
-        BeanUtils.copyProperties(dishDTO, dish);
+        BeanCopyUtil.copyProperties(dishDTO, dish);
 
         // 向菜品表插入1条数据
         dishMapper.insert(dish);
@@ -150,7 +150,7 @@ public class DishServiceImpl implements DishService {
 
         // 将查询到的数据封装到VO
         DishVO dishVO = new DishVO();
-        BeanUtils.copyProperties(dish, dishVO);
+        BeanCopyUtil.copyProperties(dish, dishVO);
         // 不能对flavors进行对象拷贝BeanUtils.copyProperties(flavors, dishVO)
         // 因为BeanUtils把flavors这个List对象本身当成“源 bean”，而List接口里并没有一个名叫flavors的属性，更没有getFlavors()方法
         // 因此BeanUtils找不到同名字段，复制量为 0
@@ -171,7 +171,7 @@ public class DishServiceImpl implements DishService {
         // 修改菜品表基本信息
         // 可以直接传dishDTO,但不合适。因为dishDTO还包含了口味数据,而当前只修改菜品表基本信息
         Dish dish = new Dish();
-        BeanUtils.copyProperties(dishDTO, dish);
+        BeanCopyUtil.copyProperties(dishDTO, dish);
         dishMapper.update(dish);
 
         //关联表可以这么做,但其他表不可以。前提是口味表不能作为父表，也就是其他表的外键，因为每次修改表口味的id会变
@@ -256,23 +256,8 @@ public class DishServiceImpl implements DishService {
                 .categoryId(categoryId)
                 .status(StatusConstant.ENABLE)
                 .build();
-        List<Dish> dishList = dishMapper.list(dish);
-
-        List<DishVO> dishVOList = new ArrayList<>();
-        // 遍历查询每一个dish对应的菜品口味，封装到DishVO中，并加入dishVOList表
-        for (Dish d : dishList) {
-            DishVO dishVO = new DishVO();
-            // 获取dish对应的口味表
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
-
-            // 将dish中与dishVO相同字段的属性赋值
-            BeanUtils.copyProperties(d, dishVO);
-            dishVO.setFlavors(flavors);
-
-            // 将dishVO加入dishVOList表中
-            dishVOList.add(dishVO);
-        }
-
-        return dishVOList;
+        // 菜品表与口味表连接查询，一条sql查出所有菜品及其口味，由MyBatis结果映射直接封装为DishVO
+        // 原先的做法是逐个菜品查询口味再通过BeanUtils拷贝属性，n个菜品需要n+1次查询
+        return dishMapper.listWithFlavor(dish);
     }
 }
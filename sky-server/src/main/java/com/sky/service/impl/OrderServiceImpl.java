@@ -1,13 +1,11 @@
 package com.sky.service.impl;
 
-import cn.hutool.core.lang.Snowflake;
-import cn.hutool.core.util.IdUtil;
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.github.xiaoymin.knife4j.core.util.CollectionUtils;
+import com.sky.cart.ShoppingCartCache;
 import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.*;
@@ -15,39 +13,59 @@ import com.sky.entity.*;
 import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
+import com.sky.geo.GeoCache;
+import com.sky.order.OrderCounters;
+import com.sky.order.OrderCursor;
+import com.sky.order.OrderExpiryQueue;
+import com.sky.order.OrderNumberGenerator;
+import com.sky.order.OrderPageTotalCache;
+import com.sky.order.OrderSearchIndex;
+import com.sky.order.OrderTransition;
 import com.sky.mapper.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.OrderService;
-import com.sky.utils.HttpClientUtil;
+import com.sky.shop.ShopStatusHolder;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
-import com.sky.websocket.WebSocketServer;
+import com.sky.websocket.OrderEventBroadcaster;
+import com.sky.utils.BeanCopyUtil;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    // 定时处理订单时每条update语句最多修改的订单数
+    private static final int SWEEP_BATCH_SIZE = 500;
+    // 游标分页默认和最大的每页记录数
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
@@ -55,20 +73,29 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private AddressBookMapper addressBookMapper;
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartCache shoppingCartCache;
     @Autowired
     private WeChatPayUtil weChatPayUtil;
     @Autowired
     private UserMapper userMapper;
-    @Value("${sky.shop.address}")
-    private String shopAddress;
-    @Value("${sky.baidu.ak}")
-    private String ak;
-    // 声明私有的常量，这种常量只能在类内部访问
-    private static final String baiduLocationAPIUrl = "https://api.map.baidu.com/geocoding/v3";
-    private static final String baiduDistanceAPIUrl = "https://api.map.baidu.com/directionlite/v1/driving";
     @Autowired
-    private WebSocketServer webSocketServer;
+    private OrderEventBroadcaster orderEventBroadcaster;
+    @Autowired
+    private GeoCache geoCache;
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    @Autowired
+    private OrderExpiryQueue orderExpiryQueue;
+    @Autowired
+    private OrderCounters orderCounters;
+    @Autowired
+    private OrderPageTotalCache orderPageTotalCache;
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+    @Autowired
+    private ShopStatusHolder shopStatusHolder;
+    @Autowired
+    private BusinessStatsService businessStatsService;
 
     /**
      * 用户下单
@@ -78,6 +105,11 @@ public class OrderServiceImpl implements OrderService {
     @Transactional // 两个表，数据一致性
     public OrderSubmitVO submitOrder(OrdersSubmitDTO ordersSubmitDTO) {
         // 1.处理各种业务异常(地址簿为空、购物车数据为空)
+        // 店铺打烊时不能下单，营业状态保存在内存中，无需访问redis
+        if(!shopStatusHolder.isOpen()){
+            throw new OrderBusinessException(MessageConstant.SHOP_IS_CLOSED);
+        }
+
         AddressBook addressBook = addressBookMapper.getById(ordersSubmitDTO.getAddressBookId());
         if(addressBook == null){
             // 抛出业务异常
@@ -85,30 +117,27 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // 检查用户的收货地址是否超出配送范围
-        checkOutOfRange(addressBook.getCityName() + addressBook.getDistrictName() + addressBook.getDetail());
+        // 店铺坐标、地址坐标和配送距离均有缓存，命中时无需调用百度地图接口
+        geoCache.checkOutOfRange(addressBook.getCityName() + addressBook.getDistrictName() + addressBook.getDetail());
 
         // 查询当前用户的购物车数据
+        // 购物车保存在redis中，数量和商品信息在一次MULTI/EXEC中读取，得到一致的快照
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = ShoppingCart.builder()
-                                                .userId(userId)
-                                                .build();
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCartList = shoppingCartCache.list(userId);
         if(shoppingCartList == null || shoppingCartList.size() == 0){
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
 
         // 2.向订单表插入1条数据
         Orders orders = new Orders();
-        BeanUtils.copyProperties(ordersSubmitDTO, orders);
+        BeanCopyUtil.copyProperties(ordersSubmitDTO, orders);
         // 若使用builder()，则需要先构建再进行属性拷贝
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID); // 未支付状态
         orders.setStatus(Orders.PENDING_PAYMENT); // 待付款
-        // 使用雪花算法生成订单号
+        // 使用雪花算法生成订单号，生成器全局唯一，各节点的机器id不同
         // JS 的整数最大只支持 53 位，因此需要转换成字符串传递给前端
-        Snowflake snowflake = IdUtil.createSnowflake(0, 0);
-        String orderNumber = String.valueOf(snowflake.nextId());
-        orders.setNumber(orderNumber);
+        orders.setNumber(orderNumberGenerator.nextNumber());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
         orders.setUserId(userId);
@@ -121,15 +150,25 @@ public class OrderServiceImpl implements OrderService {
         // 3.向订单明细表插入n条数据 -- 由购物车数据决定
         for (ShoppingCart cart : shoppingCartList) {
             OrderDetail orderDetail = new OrderDetail(); // 订单明细
-            BeanUtils.copyProperties(cart, orderDetail);
+            BeanCopyUtil.copyProperties(cart, orderDetail);
             orderDetail.setOrderId(orders.getId()); // 设置当前订单明细关联的订单id
             // 批量插入
             orderDetailList.add(orderDetail);
         }
         orderDetailMapper.insertBatch(orderDetailList);
+        // 为订单号、手机号和菜品名称建立搜索索引
+        orderSearchIndex.add(orders, orderDetailList);
 
         // 4.下单成功后，清空用户购物车数据
-        shoppingCartMapper.deleteByUserId(userId);
+        // 在事务提交后再清空，下单失败回滚时购物车保持不变
+        // 订单加入超时队列，超过支付时间后自动取消
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            public void afterCommit() {
+                shoppingCartCache.clear(userId);
+                orderExpiryQueue.add(orders.getId(), orders.getOrderTime());
+                orderCounters.add(orders.getId(), orders.getOrderTime());
+            }
+        });
 
         // 5.封装VO返回结果
         OrderSubmitVO orderSubmitVo = OrderSubmitVO.builder()
@@ -175,32 +214,33 @@ public class OrderServiceImpl implements OrderService {
         OrderPaymentVO vo = jsonObject.toJavaObject(OrderPaymentVO.class);
         vo.setPackageStr(jsonObject.getString("package"));
 
-        // 更新订单状态
-        // 为替代微信支付成功后的数据库订单状态更新，多定义一个方法进行修改
-        Integer OrderPaidStatus = Orders.PAID; // 支付状态，已支付
-        Integer OrderStatus = Orders.TO_BE_CONFIRMED; // 订单状态，待接单
-
-        //发现没有将支付时间 check_out属性赋值，所以在这里更新
-        LocalDateTime check_out_time = LocalDateTime.now();
-
         //获取订单号码
         String orderNumber = ordersPaymentDTO.getOrderNumber();
 
-        log.info("调用updateStatus，用于替换微信支付更新数据库状态的问题");
-        orderMapper.updateStatus(OrderStatus, OrderPaidStatus, check_out_time, orderNumber);
-
-        // 通过websocket向客户端测览器推送消息 type orderld content
         // 获取orderId
         Orders orders = orderMapper.getByNumber(orderNumber);
+        if(orders == null){
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
         Long ordersId = orders.getId();
 
+        // 更新订单状态
+        // 为替代微信支付成功后的数据库订单状态更新，只有仍为待付款的订单才改为待接单、已支付
+        // 订单已超时取消(或已支付)时不修改，避免已取消的订单被改回待接单
+        if(!pay(ordersId)){
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        // 通过websocket向客户端测览器推送消息 type orderld content
+
         Map map = new HashMap(); // 没加泛型 key value都是Object
         map.put("type", 1); // 1表示来单提醒 2表示客户催单
         map.put("orderId", ordersId);
         map.put("content", "订单号：" + orderNumber);
 
+        // 发布到redis频道，由每个节点推送给各自连接的客户端
         String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        orderEventBroadcaster.publish(OrderEventBroadcaster.TYPE_NEW_ORDER, ordersId, json);
 
         return vo;
     }
@@ -215,15 +255,34 @@ public class OrderServiceImpl implements OrderService {
         // 根据订单号查询订单
         Orders ordersDB = orderMapper.getByNumber(outTradeNo);
 
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
+        // 根据订单id更新订单的状态、支付状态、结账时间
+        if(!pay(ordersDB.getId())){
+            log.warn("订单已不是待付款状态，支付结果未更新:{}", outTradeNo);
+        }
+    }
+
+    /**
+     * 订单支付成功后修改订单状态
+     * 只有仍为待付款的订单才改为待接单、已支付，修改成功后移出超时队列并更新订单计数
+     * @param id
+     * @return 订单已不是待付款状态(超时取消或重复支付)时返回false
+     */
+    private boolean pay(Long id) {
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
+                .id(id)
+                .status(OrderTransition.PAY.getTarget())
                 .payStatus(Orders.PAID)
                 .checkoutTime(LocalDateTime.now())
                 .build();
+        if (orderMapper.updateByIdAndStatus(orders, OrderTransition.PAY.getFrom()) == 0) {
+            return false;
+        }
 
-        orderMapper.update(orders);
+        // 已支付，移出超时队列
+        orderExpiryQueue.remove(id);
+        orderCounters.move(id, OrderTransition.PAY);
+        businessStatsService.onOrderChanged(id);
+        return true;
     }
 
     /**
@@ -244,24 +303,27 @@ public class OrderServiceImpl implements OrderService {
         // 分页条件查询
         Page<Orders> pageQuery = orderMapper.pageQuery(ordersPageQueryDTO);
 
-        List<OrderVO> list = new ArrayList<>();
-
         // 查询出订单明细，并封装入OrderVO进行响应
-        if(pageQuery != null && pageQuery.size() > 0){
-            for (Orders orders : pageQuery) {
-                Long ordersId = orders.getId(); // 订单id
+        List<OrderVO> list = getOrderVOWithDetailList(pageQuery);
 
-                List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(ordersId);
-
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetailList);
+        return new PageResult(pageQuery.getTotal(), list);
+    }
 
-                list.add(orderVO);
-            }
-        }
+    /**
+     * 用户端订单游标分页查询
+     * @param cursor
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    public CursorPageResult cursorQuery4User(String cursor, int pageSize, Integer status) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setCursor(cursor);
+        ordersPageQueryDTO.setPageSize(pageSize);
 
-        return new PageResult(pageQuery.getTotal(), list);
+        return cursorQuery(ordersPageQueryDTO, this::getOrderVOWithDetailList);
     }
 
     /**
@@ -270,20 +332,13 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public OrderVO details(Long id) {
-        // 根据订单id查orders表订单
-        Orders orders = orderMapper.getById(id);
-
-        // 根据订单id,orderId查order_detail表
-        // 查询该订单对应的菜品/套餐明细
-        List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(id);
-
-        // 封装OrderVO
-        // 将该订单及其详情封装到OrderVO并返回
-        OrderVO orderVO = new OrderVO();
-        BeanUtils.copyProperties(orders, orderVO);
-        orderVO.setOrderDetailList(orderDetails);
+        // 订单表与明细表连接查询，一次查询得到订单及其菜品/套餐明细，并由嵌套结果映射封装到OrderVO
+        List<OrderVO> orderVOList = orderDetailMapper.getOrderVOByIds(Collections.singletonList(id));
+        if(orderVOList == null || orderVOList.isEmpty()){
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
 
-        return orderVO;
+        return orderVOList.get(0);
     }
 
     /**
@@ -292,41 +347,22 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void userCancelById(Long id) throws Exception {
-        // 查询id该订单状态status
-        Orders orders = orderMapper.getById(id);
-
-        // 若查询不到，抛异常
-        if(orders == null){
-            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        }
-
-        Integer status = orders.getStatus();
-        // 当状态status >= 3时，取消订单要与商家沟通，抛异常
-        if(status >= Orders.CONFIRMED){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        Orders order = new Orders();
-        order.setId(id);
-
-        // 当状态为待接单status = 2，微信支付退款，payStatus改为2表示退款
-        if(status.equals(Orders.TO_BE_CONFIRMED)){
-            // 调用微信支付退款接口
+        // 当状态status >= 3时，取消订单要与商家沟通，不允许取消
+        // 当状态为待接单status = 2时已支付，需要微信支付退款，payStatus改为2表示退款
+        // 调用微信支付退款接口
 //            weChatPayUtil.refund(
 //                    orders.getNumber(), //商户订单号
 //                    orders.getNumber(), //商户退款单号
 //                    new BigDecimal(0.01),//退款金额，单位 元
 //                    new BigDecimal(0.01));//原订单金额
 
-            //支付状态修改为 退款
-            order.setPayStatus(Orders.REFUND);
-        }
-
         // 更新订单状态、取消原因、取消时间
-        order.setStatus(Orders.CANCELLED);
-        order.setCancelReason("用户取消");
-        order.setCancelTime(LocalDateTime.now());
-        orderMapper.update(order);
+        Orders orders = Orders.builder()
+                .id(id)
+                .cancelReason("用户取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        transition(OrderTransition.USER_CANCEL, orders);
     }
 
     /**
@@ -354,13 +390,15 @@ public class OrderServiceImpl implements OrderService {
             ShoppingCart shoppingCart = new ShoppingCart();
 
             // 将原订单详情里面的菜品信息重新复制到购物车对象中
-            BeanUtils.copyProperties(x, shoppingCart, "id");
+            BeanCopyUtil.copyProperties(x, shoppingCart);
+            shoppingCart.setId(null); // 不拷贝订单详情的id
             shoppingCart.setUserId(userId);
             shoppingCart.setCreateTime(LocalDateTime.now());
 
             return shoppingCart;
         }).collect(Collectors.toList());
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        // 加入redis中的购物车，已有的商品数量累加
+        shoppingCartCache.addAll(userId, shoppingCartList);
     }
 
     /**
@@ -369,6 +407,9 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
+        // 订单号、手机号和菜品名称条件先通过搜索索引查出订单，不对订单表做 like 全表扫描
+        ordersPageQueryDTO.setSearchTokens(orderSearchIndex.queryTokens(ordersPageQueryDTO));
+
         PageHelper.startPage(ordersPageQueryDTO.getPage(), ordersPageQueryDTO.getPageSize());
 
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
@@ -381,21 +422,56 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), orderVOList);
     }
 
+    /**
+     * 条件搜索订单，游标分页
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    public CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        ordersPageQueryDTO.setSearchTokens(orderSearchIndex.queryTokens(ordersPageQueryDTO));
+        return cursorQuery(ordersPageQueryDTO, this::getOrderVOList);
+    }
+
+    /**
+     * 游标分页查询订单
+     * 多查询一条判断是否有下一页，本页最后一个订单的(下单时间, id)作为下一页的游标
+     * 总数使用缓存的count结果，不在每次翻页时统计
+     * @param query
+     * @param converter 将本页订单转换为OrderVO
+     * @return
+     */
+    private CursorPageResult cursorQuery(OrdersPageQueryDTO query, Function<List<Orders>, List<OrderVO>> converter) {
+        OrderCursor cursor = OrderCursor.decode(query.getCursor());
+        int pageSize = query.getPageSize() <= 0 ? DEFAULT_PAGE_SIZE : Math.min(query.getPageSize(), MAX_PAGE_SIZE);
+        query.setPageSize(pageSize);
+        query.setCursorTime(cursor == null ? null : cursor.getOrderTime());
+        query.setCursorId(cursor == null ? null : cursor.getId());
+
+        List<Orders> ordersList = orderMapper.cursorQuery(query);
+
+        String nextCursor = null;
+        if (ordersList.size() > pageSize) {
+            ordersList = ordersList.subList(0, pageSize);
+            Orders last = ordersList.get(pageSize - 1);
+            nextCursor = new OrderCursor(last.getOrderTime(), last.getId()).encode();
+        }
+
+        return new CursorPageResult(orderPageTotalCache.get(query), converter.apply(ordersList), nextCursor);
+    }
+
     /**
      * 各个状态的订单数量统计
      * @return
      */
     public OrderStatisticsVO statistics() {
-        // 根据状态，分别查询出待接单、待派送、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        // 待接单、待派送、派送中的订单数量从redis中的实时计数读取，不统计订单表
+        Map<Integer, Integer> statusCounts = orderCounters.getStatusCounts();
 
         // 将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
-        orderStatisticsVO.setToBeConfirmed(toBeConfirmed);
-        orderStatisticsVO.setConfirmed(confirmed);
-        orderStatisticsVO.setDeliveryInProgress(deliveryInProgress);
+        orderStatisticsVO.setToBeConfirmed(statusCounts.getOrDefault(Orders.TO_BE_CONFIRMED, 0));
+        orderStatisticsVO.setConfirmed(statusCounts.getOrDefault(Orders.CONFIRMED, 0));
+        orderStatisticsVO.setDeliveryInProgress(statusCounts.getOrDefault(Orders.DELIVERY_IN_PROGRESS, 0));
         return orderStatisticsVO;
     }
 
@@ -406,34 +482,20 @@ public class OrderServiceImpl implements OrderService {
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
         Orders orders = Orders.builder()
                 .id(ordersConfirmDTO.getId())
-                .status(Orders.CONFIRMED)
                 .build();
 
-        orderMapper.update(orders);
+        // 只有待接单的订单可以接单
+        transition(OrderTransition.CONFIRM, orders);
     }
 
     /**
      * 拒单
-     * 需要添加@Transactional：拒单操作涉及多个数据库更新（订单状态、支付状态等），使用事务可以确保数据一致性，避免部分更新成功而部分失败的情况。
+     * 只有待接单的订单可以拒单，拒单需要退款，更新订单状态、拒单原因、取消时间
      * @param ordersRejectionDTO
      */
-    @Transactional
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) throws Exception {
-        Long id = ordersRejectionDTO.getId();
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 先判断orders的状态是否为待接单，若不是则抛出异常
-        // 其它则为待接单状态，进行后续操作
-
-        if(ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 进行拒单操作
-        // 拒单需要退款，根据订单id更新订单状态、拒单原因、取消时间
         Orders orders = Orders.builder()
-                .id(id)
-                .status(Orders.CANCELLED)
+                .id(ordersRejectionDTO.getId())
                 .rejectionReason(ordersRejectionDTO.getRejectionReason())
                 .cancelTime(LocalDateTime.now())
                 .build();
@@ -447,36 +509,24 @@ public class OrderServiceImpl implements OrderService {
 //                    new BigDecimal(0.01),
 //                    new BigDecimal(0.01));
 //            log.info("申请退款：{}", refund);
-//            // 若拒单，需要更新支付状态
-//            orders.setPayStatus(Orders.REFUND);
 //        }
 
-        // 补充：若拒单，则设置payStatus为退款
-        if(ordersDB.getPayStatus().equals(Orders.PAID)){
-            orders.setPayStatus(Orders.REFUND);
-        }
-
-        orderMapper.update(orders);
+        // 若已支付，支付状态在同一条update中改为退款
+        transition(OrderTransition.REJECT, orders);
     }
 
     /**
      * 商家取消订单
      * @param ordersCancelDTO
      */
-    @Transactional
     public void cancle(OrdersCancelDTO ordersCancelDTO) throws Exception {
-        // 通过id获得该orders
-        Orders ordersDB = orderMapper.getById(ordersCancelDTO.getId());
-
         // 管理端取消订单需要退款，根据订单id更新订单状态、取消原因、取消时间
         Orders orders = Orders.builder()
                 .id(ordersCancelDTO.getId())
                 .cancelReason(ordersCancelDTO.getCancelReason())
                 .cancelTime(LocalDateTime.now())
-                .status(Orders.CANCELLED)
                 .build();
 
-        Integer payStatus = ordersDB.getPayStatus();
 //        if(payStatus.equals(Orders.PAID)){
 //            //用户已支付，需要退款
 //            String refund = weChatPayUtil.refund(
@@ -484,15 +534,11 @@ public class OrderServiceImpl implements OrderService {
 //                    ordersDB.getNumber(),
 //                    new BigDecimal(0.01),
 //                    new BigDecimal(0.01));
-//            // 设置支付状态为退款
-//            orders.setPayStatus(Orders.REFUND);
 //            log.info("申请退款：{}", refund);
 //        }
 
-        // 若已支付，则在退款操作后将支付状态改为退款
-        if(payStatus.equals(Orders.PAID)) orders.setPayStatus(Orders.REFUND);
-
-        orderMapper.update(orders);
+        // 已完成、已取消的订单不能再取消；若已支付，支付状态在同一条update中改为退款
+        transition(OrderTransition.ADMIN_CANCEL, orders);
     }
 
     /**
@@ -500,21 +546,12 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void delivery(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为3 -- 已接单
-        if(ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 更新订单状态,状态转为派送中 -- 4
+        // 只有状态为3 -- 已接单的订单可以派送，状态转为派送中 -- 4
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.DELIVERY_IN_PROGRESS)
+                .id(id)
                 .build();
 
-        orderMapper.update(orders);
+        transition(OrderTransition.DELIVER, orders);
     }
 
     /**
@@ -522,62 +559,141 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为4 -- 派送中
-        if(ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 只有状态为4 -- 派送中的订单可以完成
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.COMPLETED)
+                .id(id)
                 .deliveryTime(LocalDateTime.now())
                 .build();
 
-        orderMapper.update(orders);
+        transition(OrderTransition.COMPLETE, orders);
+    }
+
+    /**
+     * 订单状态流转
+     * 通过一条带状态条件的update修改订单，订单当前状态不允许该操作时修改行数为0
+     * 并发操作同一个订单时只有一个请求能成功，其余请求抛出异常
+     * @param transition
+     * @param orders
+     */
+    private void transition(OrderTransition transition, Orders orders) {
+        orders.setStatus(transition.getTarget());
+        int rows = transition.isRefund()
+                ? orderMapper.cancelByIdAndStatus(orders, transition.getFrom())
+                : orderMapper.updateByIdAndStatus(orders, transition.getFrom());
+
+        if (rows == 0) {
+            // 修改失败时才查询订单，区分订单不存在和状态错误
+            if (orderMapper.getById(orders.getId()) == null) {
+                throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+            }
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        // 更新订单状态计数和营业数据汇总
+        orderCounters.move(orders.getId(), transition);
+        businessStatsService.onOrderChanged(orders.getId());
     }
 
     /**
      * 处理超时订单的方法
      * @param pendingPayment
      * @param now
+     * @return 处理的订单数
      */
-    public void processTimeoutOrder(Integer pendingPayment, LocalDateTime now) {
+    public int processTimeoutOrder(Integer pendingPayment, LocalDateTime now) {
         // 当前时间+(-15)分钟
-        LocalDateTime time = now.plusMinutes(-15);
+        LocalDateTime time = now.plusMinutes(-OrderExpiryQueue.PAYMENT_TIMEOUT_MINUTES);
 
-        // select * from orders where status = ? and order_time < 当前时间 - 15分钟
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
+        // update orders set status = 已取消 ... where status = 待付款 and order_time < 当前时间 - 15分钟 limit n
+        Orders orders = Orders.builder()
+                .status(Orders.CANCELLED)
+                .cancelReason("订单超时，自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        return sweep(OrderTransition.TIMEOUT_CANCEL, orders, pendingPayment, time);
+    }
 
-        if(ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
+    /**
+     * 取消支付超时的订单
+     * @param id
+     * @param orderTime
+     * @return 订单仍为待付款状态并被取消时返回true
+     */
+    public boolean cancelTimeoutOrder(Long id, LocalDateTime orderTime) {
+        Orders orders = Orders.builder()
+                .id(id)
+                .status(Orders.CANCELLED)
+                .cancelReason("订单超时，自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        // 只有仍为待付款状态的订单才取消，已支付的订单不受影响
+        if (orderMapper.updateByIdAndStatus(orders, OrderTransition.TIMEOUT_CANCEL.getFrom()) == 0) {
+            return false;
         }
+        orderCounters.move(id, OrderTransition.TIMEOUT_CANCEL);
+
+        // 更新营业数据汇总
+        businessStatsService.onOrdersChanged(Collections.singletonList(orderTime));
+        return true;
     }
 
     /**
      * 处理一直处于派送中状态的订单
      * @param deliveryInProgress
      * @param now
+     * @return 处理的订单数
      */
-    public void processDeliveryOrder(Integer deliveryInProgress, LocalDateTime now) {
+    public int processDeliveryOrder(Integer deliveryInProgress, LocalDateTime now) {
         // 筛选出那些“预计送达时间”小于“当前时间”的，这样可以避免刚下单的用户被自动完成！
         LocalDateTime time = now.plusHours(-1);
 
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
+        Orders orders = Orders.builder()
+                .status(Orders.COMPLETED)
+                .build();
+        return sweep(OrderTransition.COMPLETE, orders, deliveryInProgress, time);
+    }
+
+    /**
+     * 分批修改指定状态、下单时间早于指定时间的订单，直到没有符合条件的订单
+     * 每批先查出订单id，再用一条update语句修改仍为原状态的订单，并按修改的订单修改计数
+     * @param transition 状态变化，用于修改计数
+     * @param orders 修改后的状态
+     * @param status
+     * @param orderTime
+     * @return 修改的订单数
+     */
+    private int sweep(OrderTransition transition, Orders orders, Integer status, LocalDateTime orderTime) {
+        // 先记录最早的下单时间，用于更新营业数据汇总
+        LocalDateTime minOrderTime = orderMapper.getMinOrderTimeByStatusAndOrderTimeLT(status, orderTime);
+        if (minOrderTime == null) {
+            return 0;
+        }
 
-        if(ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+        int total = 0;
+        List<Long> ids;
+        do {
+            ids = orderMapper.getIdsByStatusAndOrderTimeLT(status, orderTime, SWEEP_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            int count = orderMapper.updateStatusByIdsAndStatus(orders, ids, status);
+            List<Long> moved = ids;
+            if (count < ids.size()) {
+                // 部分订单在查询后被其它操作修改了状态，只有已变为目标状态的订单是本次修改的
+                // 目标状态(已取消、已完成)是最终状态，其它操作也改为目标状态时计数只会修改一次
+                moved = orderMapper.getIdsByIdsAndStatus(ids, orders.getStatus());
             }
+            orderCounters.move(moved, transition);
+            total += count;
+        } while (ids.size() == SWEEP_BATCH_SIZE);
+
+        // 更新营业数据汇总，当天的数据是实时统计的，只需更新今天之前的日期
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (total > 0 && !minOrderTime.toLocalDate().isAfter(yesterday)) {
+            LocalDate end = orderTime.toLocalDate().isAfter(yesterday) ? yesterday : orderTime.toLocalDate();
+            businessStatsService.refresh(minOrderTime.toLocalDate(), end);
         }
+        return total;
     }
 
     /**
@@ -598,28 +714,29 @@ public class OrderServiceImpl implements OrderService {
         map.put("orderld", id);
         map.put("content", "订单号：" + ordersDB.getNumber());
 
-        // 通过websocket向客户端测览器推送消息
+        // 通过websocket向客户端测览器推送消息，发布到redis频道，由每个节点推送给各自连接的客户端
         String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        orderEventBroadcaster.publish(OrderEventBroadcaster.TYPE_REMINDER, id, json);
     }
 
-    private List<OrderVO> getOrderVOList(Page<Orders> page){
+    private List<OrderVO> getOrderVOList(List<Orders> ordersList){
         // 需要返回订单菜品信息，自定义OrderVO响应结果
         List<OrderVO> orderVOList = new ArrayList<>();
 
-        // 需要从page.getResult()中获得List<Orders>
-        List<Orders> ordersList = page.getResult();
         /*
         这里能不能直接!orderList.isEmpty()？
         可以，但需要先确保 ordersList 不为 null。当前代码使用 CollectionUtils.isEmpty() 更安全，
         因为它同时检查了 null 和空集合两种情况。如果确定 ordersList 不会为 null，可以直接使用 !ordersList.isEmpty()。
          */
         if (!CollectionUtils.isEmpty(ordersList)) {
+            // 一次查询取回本页所有订单的明细，再按订单id分组
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+
             for (Orders orders : ordersList) {
                 // 将共同字段复制到OrderVO
                 OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders, orderVO);
-                String orderDishes = getOrderDishesStr(orders);
+                BeanCopyUtil.copyProperties(orders, orderVO);
+                String orderDishes = getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 // 将订单菜品信息封装到orderVO中，并添加到orderVOList
                 orderVO.setOrderDishes(orderDishes);
@@ -630,14 +747,46 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 根据订单id获取菜品信息字符串
-     * @param orders
+     * 将订单转换为带订单明细的OrderVO
+     * @param ordersList
+     * @return
+     */
+    private List<OrderVO> getOrderVOWithDetailList(List<Orders> ordersList){
+        List<OrderVO> list = new ArrayList<>();
+        if(ordersList != null && ordersList.size() > 0){
+            // 一次查询取回本页所有订单的明细，再按订单id分组，避免每个订单查询一次
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+
+            for (Orders orders : ordersList) {
+                List<OrderDetail> orderDetailList = orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>());
+
+                OrderVO orderVO = new OrderVO();
+                BeanCopyUtil.copyProperties(orders, orderVO);
+                orderVO.setOrderDetailList(orderDetailList);
+
+                list.add(orderVO);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 批量查询订单明细，并按订单id分组
+     * @param ordersList
      * @return
      */
-    private String getOrderDishesStr(Orders orders){
-        // 查询订单菜品详情信息（订单中的菜品和数量）
-        List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orders.getId());
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList){
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        List<OrderDetail> orderDetails = orderDetailMapper.getByOrderIds(orderIds);
+        return orderDetails.stream().collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
 
+    /**
+     * 根据订单明细获取菜品信息字符串
+     * @param orderDetails
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetails){
         // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetails.stream().map(x -> {
             String orderDish = x.getName() + "*" + x.getNumber() + ";";
@@ -647,76 +796,4 @@ public class OrderServiceImpl implements OrderService {
         // 将该订单对应的所有菜品信息拼接在一起
         return String.join("", orderDishList);
     }
-
-    /**
-     * 检查客户的收货地址是否超出配送范围
-     * @param address
-     */
-    private void checkOutOfRange(String address){
-        Map<String, String> map = new HashMap<>();
-        map.put("address", shopAddress);
-        map.put("ak", ak);
-        // 由于官方api提供的输出格式默认值为xml,我们需要将其转为json
-        map.put("output", "json");
-
-        // 获取店铺的经纬度坐标
-        String shopCoodinate = HttpClientUtil.doGet(baiduLocationAPIUrl, map);
-
-        // 将HTTP请求返回的JSON字符串解析为JSONObject对象
-        JSONObject jsonObject = JSONObject.parseObject(shopCoodinate);
-        // 通过检查status字段判断API调用是否成功，status="0"表示成功
-        if(!jsonObject.getString("status").equals("0")){
-            // 这里实际上可以封装到MessageConstant中
-            throw new OrderBusinessException("店铺地址解析失败");
-        }
-
-        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
-        String lng = location.getString("lng"); // 经度值
-        String lat = location.getString("lat"); // 纬度值
-        // 店铺经纬度坐标
-        String shopLngLat = lat + "," + lng;
-        log.info("店铺经纬度坐标:{}", shopLngLat);
-
-        // 将address替代
-        map.put("address", address);
-
-        // 获取用户收货地址的经纬度坐标
-        String userCoordinate = HttpClientUtil.doGet(baiduLocationAPIUrl, map);
-
-        jsonObject = JSONObject.parseObject(userCoordinate);
-        if(!jsonObject.getString("status").equals("0")){
-            // 这里实际上也可以封装到MessageConstant中
-            throw new OrderBusinessException("收货地址解析失败");
-        }
-
-        //数据解析
-        location = jsonObject.getJSONObject("result").getJSONObject("location");
-        lng = location.getString("lng"); // 经度值
-        lat = location.getString("lat"); // 纬度值
-        // 用户收货地址经纬度坐标
-        String userLngLat = lat + "," + lng;
-
-        map.put("origin", shopLngLat);
-        map.put("destination", userLngLat);
-        map.put("steps_info", "0");
-
-        // 路线规划
-        String json = HttpClientUtil.doGet(baiduDistanceAPIUrl, map);
-
-        jsonObject = JSON.parseObject(json);
-        if(!jsonObject.getString("status").equals("0")){
-            // 这里实际上也可以封装到MessageConstant中
-            throw new OrderBusinessException("配送路线规划失败");
-        }
-
-        // 数据解析
-        JSONObject result = jsonObject.getJSONObject("result");
-        JSONArray jsonArray = (JSONArray) result.get("routes");
-        Integer distance = (Integer) ((JSONObject) jsonArray.get(0)).get("distance");
-
-        if(distance > 5000){
-            // 配送距离超过5000米
-            throw new OrderBusinessException("超出配送范围");
-        }
-    }
 }
@@ -1,15 +1,19 @@
 package com.sky.service.impl;
 
 import com.sky.dto.GoodsSalesDTO;
-import com.sky.entity.Orders;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.formula.functions.T;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -30,12 +34,15 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    // 模板中明细数据的起始行
+    private static final int DETAIL_START_ROW = 7;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private UserMapper userMapper;
     @Autowired
-    private WorkspaceService workspaceService;
+    private BusinessStatsService businessStatsService;
 
     /**
      * 统计指定时间区间内的营业额数据
@@ -45,36 +52,19 @@ public class ReportServiceImpl implements ReportService {
      */
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
         // 当前集合用于存放从begin到end范围内的每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-
-        dateList.add(begin);
-        while(!begin.equals(end)){
-            // 日期计算，计算指定日期的后一天对应的日期
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
 
         // 将DateList转为需要的由","分隔开的String类型字符串
         String dateListString = dateList.stream().map(LocalDate::toString).collect(Collectors.joining(","));
-//        String dateListString = String.join(",", dateList.stream().map(LocalDate::toString).collect(Collectors.toList()));
-//        String dateListString = StringUtils.join(dateList, ",");
+
+        // 获取每天的营业数据，已结束的日期读取汇总表，当天实时统计
+        // 营业额是指:状态为“已完成”的订单金额合计
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
 
         // 存放每天的营业额
-        List<Double> turnoverList = new ArrayList<>();
-        for (LocalDate date : dateList) {
-            // 查询date日期对应的营业额数据，营业额是指:状态为“已完成”的订单金额合计
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            // select sum(amount) from orders where order_time > beginTime and order_time < endTime and status = 5
-            Map map = new HashMap<>();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
-            map.put("status", Orders.COMPLETED);
-            Double turnover = orderMapper.sumByMap(map);
-            turnover = turnover == null ? 0.0 : turnover;
-            turnoverList.add(turnover);
-        }
+        List<Double> turnoverList = dailyStats.stream()
+                .map(stats -> stats.getTurnover().doubleValue())
+                .collect(Collectors.toList());
         // 将turnoverList转为需要的由","分隔开的String类型字符串
         String turnoverListString = StringUtils.join(turnoverList, ",");
 
@@ -94,61 +84,27 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
-        // 用于计算第一天的前一天用户数量的时间
-        LocalDateTime endTime = LocalDateTime.of(begin.plusDays(-1), LocalTime.MAX);
-
         // 存放从begin到end之间的每天对应的日期
-        List<LocalDate> dateList = new ArrayList<>();
-
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
         String dateListString = dateList.stream().map(LocalDate::toString).collect(Collectors.joining(","));
 
-//        // 存放每天的总用户数量 select count(id) from user where create time < ? and create time >?
-//        List<Integer> totalUserList = new ArrayList<>();
-//        // 存放每天的新增用户数量 select count(id) from user where create time < ?
-//        List<Integer> newUserList = new ArrayList<>();
-//        for (LocalDate localDate : dateList) {
-//            LocalDateTime beginTime = LocalDateTime.of(localDate, LocalTime.MIN);
-//            LocalDateTime endTime = LocalDateTime.of(localDate, LocalTime.MAX);
-//
-//            Map map = new HashMap();
-//
-//            map.put("end", endTime);
-//            // 总用户数量
-//            Integer totalUserNum = userMapper.countByMap(map);
-//            totalUserList.add(totalUserNum);
-//
-//            map.put("begin", beginTime);
-//            // 新增用户数量
-//            Integer newUserNum = userMapper.countByMap(map);
-//            newUserList.add(newUserNum);
-//        }
-//        String totalUserListString = StringUtils.join(totalUserList, ",");
-//        String newUserListString = StringUtils.join(newUserList, ",");
-
-        // 只查询总的用户数目，后一天的用户数目减去前一天的数目就是新增的
-        // 存放每天的总用户数量 select count(id) from user where create time < ? and create time >?
+        // 只查询第一天之前的用户总数，以及区间内每天的新增用户数，每天的用户总数由前一天累加得到
+        // 存放每天的总用户数量
         List<Integer> totalUserList = new ArrayList<>();
-        // 存放每天的新增用户数量 select count(id) from user where create time < ?
+        // 存放每天的新增用户数量
         List<Integer> newUserList = new ArrayList<>();
-        // 计算第一天的前一天用户数量
-        Integer lastUserNum = userMapper.countByEnd(endTime);
-        Integer newUserNum;
-        for (LocalDate localDate : dateList) {
-            endTime = LocalDateTime.of(localDate, LocalTime.MAX);
-
-            // 总用户数量
-            Integer totalUserNum = userMapper.countByEnd(endTime);
-            totalUserList.add(totalUserNum);
-
+        // 计算第一天之前的用户数量
+        Integer lastUserNum = userMapper.countByEnd(LocalDateTime.of(begin, LocalTime.MIN));
+        // 获取区间内每天的新增用户数，已结束的日期读取汇总表，当天实时统计
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
+        for (DailyBusinessStats stats : dailyStats) {
             // 新增用户数量
-            newUserNum = totalUserNum - lastUserNum;
-            lastUserNum = totalUserNum;
+            Integer newUserNum = stats.getNewUsers();
             newUserList.add(newUserNum);
+
+            // 总用户数量
+            lastUserNum = lastUserNum + newUserNum;
+            totalUserList.add(lastUserNum);
         }
         String totalUserListString = StringUtils.join(totalUserList, ",");
         String newUserListString = StringUtils.join(newUserList, ",");
@@ -171,29 +127,18 @@ public class ReportServiceImpl implements ReportService {
      */
     public OrderReportVO getOrdersStatistics(LocalDate begin, LocalDate end) {
         // 存放从begin到end之间的每天对应的日期
-        List<LocalDate> dateList = new ArrayList<>();
+        List<LocalDate> dateList = getDateList(begin, end);
 
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        // 获取每天的订单总数和有效订单数，已结束的日期读取汇总表，当天实时统计
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
 
         // 存放每天的订单总数
         List<Integer> orderCountList = new ArrayList<>();
         // 存放每天的有效订单数
         List<Integer> validOrderCountList = new ArrayList<>();
-        // 遍历dateList集合，查询每天的有效订单数和订单总数
-        for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            // 查询每天的订单总数 select count(id) from orders where order time > ? and order time < ?
-            Integer orderCount = getOrderCount(beginTime, endTime, null);
-            orderCountList.add(orderCount);
-            // 查询每天的有效订单数 select count(id) from orders where order time > ? and order time < ? and status = ?
-            Integer validOrderCount = getOrderCount(beginTime, endTime, Orders.COMPLETED);
-            validOrderCountList.add(validOrderCount);
+        for (DailyBusinessStats stats : dailyStats) {
+            orderCountList.add(stats.getTotalOrders());
+            validOrderCountList.add(stats.getValidOrders());
         }
 
         // 计算时间区间内的订单总数量
@@ -239,21 +184,41 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表 -- 最近30天
      * @param response
      */
     public void exportBusinessData(HttpServletResponse response) {
-        // 1.查询数据库，获取营业数据 -- 查询最近30天的运营数据
         LocalDate dateBegin = LocalDate.now().minusDays(30);
         LocalDate dateEnd = LocalDate.now().minusDays(1);
+        exportBusinessData(dateBegin, dateEnd, response);
+    }
 
-        // 查询概览数据
-        BusinessDataVO businessDataVO = workspaceService.getBusinessData(LocalDateTime.of(dateBegin, LocalTime.MIN),
-                LocalDateTime.of(dateEnd, LocalTime.MAX));
+    /**
+     * 导出指定时间区间的运营数据报表
+     * 基于模板创建SXSSF流式工作簿，内存中只保留最近的部分行，其余行写入临时文件，导出一整年的数据也不会占用过多内存
+     * @param dateBegin
+     * @param dateEnd
+     * @param response
+     */
+    public void exportBusinessData(LocalDate dateBegin, LocalDate dateEnd, HttpServletResponse response) {
+        // 1.查询每天的营业数据，已结束的日期读取汇总表，整个区间只需一次查询
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(dateBegin, dateEnd);
+
+        // 汇总得到概览数据
+        double turnover = 0.0;
+        int totalOrderCount = 0;
+        int validOrderCount = 0;
+        int newUsers = 0;
+        for (DailyBusinessStats stats : dailyStats) {
+            turnover += stats.getTurnover().doubleValue();
+            totalOrderCount += stats.getTotalOrders();
+            validOrderCount += stats.getValidOrders();
+            newUsers += stats.getNewUsers();
+        }
 
         // 2.通过POI将数据写入excel文件
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
-        try {
+        SXSSFWorkbook workbook = null;
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx")) {
             // 基于模板文件创建一个新的Excel文件
             XSSFWorkbook excel = new XSSFWorkbook(in);
 
@@ -266,75 +231,96 @@ public class ReportServiceImpl implements ReportService {
             // 填充数据 -- 概览数据
             // 获得第四行
             XSSFRow row = sheet.getRow(3);
-            row.getCell(2).setCellValue(businessDataVO.getTurnover());
-            row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
-            row.getCell(6).setCellValue(businessDataVO.getNewUsers());
+            row.getCell(2).setCellValue(turnover);
+            row.getCell(4).setCellValue(totalOrderCount == 0 ? 0.0 : (double) validOrderCount / totalOrderCount);
+            row.getCell(6).setCellValue(newUsers);
             // 获得第五行
             row = sheet.getRow(4);
-            row.getCell(2).setCellValue(businessDataVO.getValidOrderCount());
-            row.getCell(4).setCellValue(businessDataVO.getUnitPrice());
-
-            // 填充明细数据
-//            // 做法一:for循环
-//            for(int i=0; i < 30;i++){
-//                LocalDate date = dateBegin.plusDays(i);
-//                // 查询某一天的营业数据
-//                businessDataVO = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN),
-//                        LocalDateTime.of(date, LocalTime.MAX));
-//                // 获得某一行
-//                row = sheet.getRow(7 + i);
-//                row.getCell(1).setCellValue(dateBegin.toString());
-//                row.getCell(2).setCellValue(businessDataVO.getTurnover());
-//                row.getCell(3).setCellValue(businessDataVO.getValidOrderCount());
-//                row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
-//                row.getCell(5).setCellValue(businessDataVO.getUnitPrice());
-//                row.getCell(6).setCellValue(businessDataVO.getNewUsers());
-//                dateBegin = dateBegin.plusDays(1);
-//                }
-            // 做法二:while循环
+            row.getCell(2).setCellValue(validOrderCount);
+            row.getCell(4).setCellValue(validOrderCount == 0 ? 0.0 : turnover / validOrderCount);
+
+            // 记录模板中明细行的样式，然后删除模板中的明细行
+            // 流式写入只能追加模板最后一行之后的行，明细行需要重新创建
+            XSSFRow templateRow = sheet.getRow(DETAIL_START_ROW);
+            float rowHeight = templateRow.getHeightInPoints();
+            CellStyle[] cellStyles = new CellStyle[7];
+            for (int i = 1; i <= 6; i++) {
+                cellStyles[i] = templateRow.getCell(i).getCellStyle();
+            }
+            for (int i = sheet.getLastRowNum(); i >= DETAIL_START_ROW; i--) {
+                XSSFRow r = sheet.getRow(i);
+                if (r != null) {
+                    sheet.removeRow(r);
+                }
+            }
+
+            // 填充明细数据，内存中最多保留100行
+            workbook = new SXSSFWorkbook(excel, 100);
+            SXSSFSheet streamingSheet = workbook.getSheet("Sheet1");
             int num = 0;
-            while(!dateBegin.isAfter(dateEnd)){
-                // 查询某一天的营业数据
-                businessDataVO = workspaceService.getBusinessData(LocalDateTime.of(dateBegin, LocalTime.MIN),
-                        LocalDateTime.of(dateBegin, LocalTime.MAX));
-                // 获得某一行
-                row = sheet.getRow(7 + num);
-                row.getCell(1).setCellValue(dateBegin.toString());
-                row.getCell(2).setCellValue(businessDataVO.getTurnover());
-                row.getCell(3).setCellValue(businessDataVO.getValidOrderCount());
-                row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessDataVO.getUnitPrice());
-                row.getCell(6).setCellValue(businessDataVO.getNewUsers());
+            for (DailyBusinessStats stats : dailyStats) {
+                double dayTurnover = stats.getTurnover().doubleValue();
+                int dayValidOrders = stats.getValidOrders();
+                int dayTotalOrders = stats.getTotalOrders();
+
+                Row detailRow = streamingSheet.createRow(DETAIL_START_ROW + num);
+                detailRow.setHeightInPoints(rowHeight);
+                createCell(detailRow, 1, cellStyles).setCellValue(stats.getStatDate().toString());
+                createCell(detailRow, 2, cellStyles).setCellValue(dayTurnover);
+                createCell(detailRow, 3, cellStyles).setCellValue(dayValidOrders);
+                createCell(detailRow, 4, cellStyles).setCellValue(dayTotalOrders == 0 ? 0.0 : (double) dayValidOrders / dayTotalOrders);
+                createCell(detailRow, 5, cellStyles).setCellValue(dayValidOrders == 0 ? 0.0 : dayTurnover / dayValidOrders);
+                createCell(detailRow, 6, cellStyles).setCellValue(stats.getNewUsers());
                 num += 1;
-                dateBegin = dateBegin.plusDays(1);
             }
 
-            // 3.通过输出流将excel文件下载至客户端浏览器
+            // 3.通过输出流将excel文件直接写出至客户端浏览器
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
             ServletOutputStream out = response.getOutputStream();
-            excel.write(out);
-
-            // 4.关闭资源
-            out.close();
-            excel.close();
-            in.close();
+            workbook.write(out);
+            out.flush();
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("导出运营数据报表失败", e);
+        } finally {
+            // 4.关闭资源，删除流式写入产生的临时文件
+            if (workbook != null) {
+                workbook.dispose();
+                try {
+                    workbook.close();
+                } catch (IOException e) {
+                    log.error("关闭Excel文件失败", e);
+                }
+            }
         }
     }
 
     /**
-     * 根据条件统计订单数量
+     * 创建单元格并设置模板中对应列的样式
+     * @param row
+     * @param column
+     * @param cellStyles
+     * @return
+     */
+    private Cell createCell(Row row, int column, CellStyle[] cellStyles){
+        Cell cell = row.createCell(column);
+        cell.setCellStyle(cellStyles[column]);
+        return cell;
+    }
+
+    /**
+     * 获取从begin到end范围内的每天的日期
      * @param begin
      * @param end
-     * @param status
      * @return
      */
-    private Integer getOrderCount(LocalDateTime begin, LocalDateTime end, Integer status){
-        Map map = new HashMap();
-        map.put("begin", begin);
-        map.put("end", end);
-        map.put("status", status);
-
-        return orderMapper.countByMap(map);
+    private List<LocalDate> getDateList(LocalDate begin, LocalDate end){
+        List<LocalDate> dateList = new ArrayList<>();
+        dateList.add(begin);
+        while(!begin.equals(end)){
+            // 日期计算，计算指定日期的后一天对应的日期
+            begin = begin.plusDays(1);
+            dateList.add(begin);
+        }
+        return dateList;
     }
 }
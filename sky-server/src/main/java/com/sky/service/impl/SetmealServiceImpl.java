@@ -19,7 +19,7 @@ import com.sky.result.Result;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
-import org.springframework.beans.BeanUtils;
+import com.sky.utils.BeanCopyUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -47,7 +47,7 @@ public class SetmealServiceImpl implements SetmealService {
     public void saveWithDish(SetmealDTO setmealDTO) {
         // 赋值setmeal表
         Setmeal setmeal = new Setmeal();
-        BeanUtils.copyProperties(setmealDTO, setmeal);
+        BeanCopyUtil.copyProperties(setmealDTO, setmeal);
         // 向套餐表插入数据
         setmealMapper.insert(setmeal);
 
@@ -122,7 +122,7 @@ public class SetmealServiceImpl implements SetmealService {
         // 创建SetmealVO对象,把查询回来的Setmeal对象BeanUtils赋值
         SetmealVO setmealVO = new SetmealVO();
         Setmeal setmeal = setmealMapper.getById(id);
-        BeanUtils.copyProperties(setmeal, setmealVO);
+        BeanCopyUtil.copyProperties(setmeal, setmealVO);
 
         // 从setmeal_dish表中根据setmealId获取SetmealDish类对象
         List<SetmealDish> setmealDishes = setmealDishMapper.getBySetmealId(id);
@@ -137,7 +137,7 @@ public class SetmealServiceImpl implements SetmealService {
      */
     public void update(SetmealDTO setmealDTO) {
         Setmeal setmeal = new Setmeal();
-        BeanUtils.copyProperties(setmealDTO, setmeal);
+        BeanCopyUtil.copyProperties(setmealDTO, setmeal);
 
         //1、修改套餐表，执行update
         setmealMapper.update(setmeal);
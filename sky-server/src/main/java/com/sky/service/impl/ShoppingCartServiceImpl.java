@@ -1,5 +1,6 @@
 package com.sky.service.impl;
 
+import com.sky.cart.ShoppingCartCache;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.Dish;
@@ -7,12 +8,11 @@ import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.ShoppingCartMapper;
 import com.sky.result.Result;
 import com.sky.service.ShoppingCartService;
+import com.sky.utils.BeanCopyUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,7 +25,7 @@ import java.util.List;
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartCache shoppingCartCache;
     @Autowired
     private DishMapper dishMapper;
     @Autowired
@@ -38,22 +38,14 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public void addShoppingCart(ShoppingCartDTO shoppingCartDTO) {
         // 判断当前加入购物车的商品是否已经存在
         ShoppingCart shoppingCart = new ShoppingCart();
-        BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
-        shoppingCart.setUserId(BaseContext.getCurrentId());
-
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+        BeanCopyUtil.copyProperties(shoppingCartDTO, shoppingCart);
+        Long userId = BaseContext.getCurrentId();
+        shoppingCart.setUserId(userId);
 
-        // 如果已经存在，将数量+1
-        if(list != null && list.size() > 0){
-            // 实际上list里应当只有一条数据，因为只会查到一条数据，对一条数据进行操作
-            ShoppingCart cart = list.get(0);
-            cart.setNumber(cart.getNumber() + 1); // 数量+1
-            // 执行update语句 update shopping_cart set number = ? where id = ?
-            // 这里实际上只需要更改数量，无需写成更新所有。因为shopping_cart表的其它字段实际上无法更改。
-            shoppingCartMapper.updateNumberById(cart);
-        }else{
-            // 如果不存在，需要插入一条购物车数据
-            // 此时需要构造一购物车对象，插入shopping_cart表
+        // 如果已经存在，只需将redis中的数量+1(HINCRBY)，不再访问数据库
+        // 如果不存在，需要先查询商品的名称、金额、图片，连同商品信息一起加入
+        // 购物车数据由定时任务异步写回shopping_cart表
+        if(!shoppingCartCache.increment(userId, shoppingCart)){
             // 获取菜品名称、金额、图片，需要判断是dish表还是setmeal表
             Long dishId = shoppingCartDTO.getDishId();
             if(dishId != null){
@@ -71,10 +63,8 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
                 shoppingCart.setAmount(setmeal.getPrice());
                 shoppingCart.setImage(setmeal.getImage());
             }
-            // 由于无论是套餐还是菜品均需要添加数量和创建时间，因此在条件判断外设置
-            shoppingCart.setNumber(1);
             shoppingCart.setCreateTime(LocalDateTime.now());
-            shoppingCartMapper.insert(shoppingCart);
+            shoppingCartCache.increment(userId, shoppingCart);
         }
     }
 
@@ -85,21 +75,16 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public List<ShoppingCart> showShoppingCart() {
         // 获取到当前微信用户的id
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = ShoppingCart.builder()
-                                        .userId(userId)
-                                        .build();
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        return list;
+        return shoppingCartCache.list(userId);
     }
 
     /**
      * 清空购物车
      */
     public void cleanShoppingCart() {
-        // 根据userId删除数据
         // 获取到当前微信用户的id
         Long userId = BaseContext.getCurrentId();
-        shoppingCartMapper.deleteByUserId(userId);
+        shoppingCartCache.clear(userId);
     }
 
     /**
@@ -107,27 +92,9 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      * @param shoppingCartDTO
      */
     public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
-        // 获取该数据
         ShoppingCart shoppingCart = new ShoppingCart();
-        BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
-        shoppingCart.setUserId(BaseContext.getCurrentId());
-        // 设置查询条件，查询当前登录用户的购物车数据
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-
-        // 判断该数据数量
-        if(list != null && list.size() > 0){
-            // 同样，若存在该数据则只可能为一条
-            ShoppingCart cart = list.get(0);
-
-            // 若数量>1，则数量-1
-            if(cart.getNumber() > 1){
-                cart.setNumber(cart.getNumber() - 1);
-                shoppingCartMapper.updateNumberById(cart);
-            }else{
-                // 若数量 == 1，则删除该数据
-                Long id = cart.getId();
-                shoppingCartMapper.deleteById(id);
-            }
-        }
+        BeanCopyUtil.copyProperties(shoppingCartDTO, shoppingCart);
+        // 数量-1，减为0时从购物车中删除
+        shoppingCartCache.decrement(BaseContext.getCurrentId(), shoppingCart);
     }
 }
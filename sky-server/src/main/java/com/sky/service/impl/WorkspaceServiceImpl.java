@@ -1,11 +1,13 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.OrderStatisticsDTO;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.order.OrderCounters;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -15,7 +17,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,6 +32,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private OrderCounters orderCounters;
 
     /**
      * 根据时间段统计营业数据
@@ -47,20 +50,17 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
+        // 一次查询统计出总订单数、营业额和有效订单数
+        OrderStatisticsDTO statisticsDTO = orderMapper.getStatistics(begin, end);
 
         //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
+        Integer totalOrderCount = statisticsDTO.getOrderCount();
 
-        map.put("status", Orders.COMPLETED);
         //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
+        Double turnover = statisticsDTO.getTurnover();
 
         //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+        Integer validOrderCount = statisticsDTO.getValidOrderCount();
 
         Double unitPrice = 0.0;
 
@@ -73,6 +73,9 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         }
 
         //新增用户数
+        Map map = new HashMap();
+        map.put("begin",begin);
+        map.put("end",end);
         Integer newUsers = userMapper.countByMap(map);
 
         return BusinessDataVO.builder()
@@ -91,28 +94,23 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
+        // 今天各状态的订单数量从redis中的实时计数读取，不统计订单表
+        Map<Integer, Integer> statusCounts = orderCounters.getTodayStatusCounts();
 
         //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = statusCounts.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
 
         //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = statusCounts.getOrDefault(Orders.CONFIRMED, 0);
 
         //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = statusCounts.getOrDefault(Orders.COMPLETED, 0);
 
         //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = statusCounts.getOrDefault(Orders.CANCELLED, 0);
 
         //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = orderCounters.getTodayCount();
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
@@ -0,0 +1,103 @@
+package com.sky.shop;
+
+import com.sky.constant.StatusConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 店铺营业状态
+ * 营业状态保存在redis中，每个节点在内存中保留一份，查询时不访问redis
+ * 管理端修改营业状态后通过redis频道通知所有节点，并定时与redis核对
+ */
+@Component
+@Slf4j
+public class ShopStatusHolder implements MessageListener {
+
+    public static final String KEY = "SHOP_STATUS";
+
+    private static final String CHANNEL = "shop:status";
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // 营业状态 1营业中 0打烊中
+    private volatile Integer status;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        reconcile();
+    }
+
+    /**
+     * 获取营业状态
+     * @return
+     */
+    public Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * 是否营业中
+     * @return
+     */
+    public boolean isOpen() {
+        return StatusConstant.ENABLE.equals(status);
+    }
+
+    /**
+     * 设置营业状态，并通知其它节点
+     * @param status
+     */
+    public void setStatus(Integer status) {
+        redisTemplate.opsForValue().set(KEY, status);
+        this.status = status;
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, String.valueOf(status));
+        } catch (Exception e) {
+            // 通知失败时由定时核对更新其它节点
+            log.warn("发布店铺营业状态失败:{}", status, e);
+        }
+    }
+
+    /**
+     * 收到营业状态变化的消息
+     * @param message
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        status = Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8));
+        log.info("店铺营业状态已更新为:{}", status);
+    }
+
+    /**
+     * 每分钟与redis核对一次营业状态，防止漏收消息
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void reconcile() {
+        try {
+            Integer current = (Integer) redisTemplate.opsForValue().get(KEY);
+            if (current != null && !current.equals(status)) {
+                log.info("核对店铺营业状态:{} -> {}", status, current);
+                status = current;
+            }
+        } catch (Exception e) {
+            log.warn("读取店铺营业状态失败", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sky.task;
+
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 定时任务类，每天重新汇总营业数据
+ */
+@Component
+@Slf4j
+public class BusinessStatsTask {
+
+    // 每次重新汇总最近几天的数据，修正订单状态变化未及时汇总的情况
+    private static final int RECONCILE_DAYS = 7;
+
+    @Autowired
+    private BusinessStatsService businessStatsService;
+
+    /**
+     * 重新汇总最近几天的营业数据
+     * 在处理派送中订单的定时任务(每天凌晨1点)之后执行
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void reconcile(){
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate begin = end.minusDays(RECONCILE_DAYS - 1);
+        log.info("定时汇总营业数据:{}至{}", begin, end);
+
+        businessStatsService.refresh(begin, end);
+    }
+
+    /**
+     * 每分钟更新一次状态发生变化的订单对应日期的汇总数据
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void flushChangedOrders(){
+        int count = businessStatsService.flushChangedOrders();
+        if (count > 0) {
+            log.info("更新状态变化订单的营业数据汇总:{}个订单", count);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.sky.task;
+
+import com.sky.interceptor.JwtTokenAdminInterceptor;
+import com.sky.interceptor.JwtTokenUserInterceptor;
+import com.sky.utils.HttpClientUtil;
+import com.sky.utils.HttpMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务类，定时输出令牌校验和对外HTTP请求的统计数据
+ */
+@Component
+@Slf4j
+public class MetricsTask {
+
+    @Autowired
+    private JwtTokenAdminInterceptor jwtTokenAdminInterceptor;
+
+    @Autowired
+    private JwtTokenUserInterceptor jwtTokenUserInterceptor;
+
+    /**
+     * 每5分钟输出一次令牌校验统计数据
+     */
+    @Scheduled(fixedRate = 5 * 60 * 1000)
+    public void logJwtStats(){
+        log.info("管理端令牌校验统计:{}", jwtTokenAdminInterceptor.stats());
+        log.info("用户端令牌校验统计:{}", jwtTokenUserInterceptor.stats());
+    }
+
+    /**
+     * 每5分钟输出一次对外HTTP请求(微信、百度地图等)各主机的耗时、失败数和连接池使用情况
+     */
+    @Scheduled(fixedRate = 5 * 60 * 1000)
+    public void logHttpStats(){
+        HttpMetrics.snapshot().forEach((host, stats) -> log.info("对外HTTP请求统计 {}:{}", host, stats));
+        log.info("HTTP连接池使用情况:{}", HttpClientUtil.getPoolStats());
+    }
+}
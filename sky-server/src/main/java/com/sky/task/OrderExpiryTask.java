@@ -0,0 +1,54 @@
+package com.sky.task;
+
+import com.sky.order.OrderExpiryQueue;
+import com.sky.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 定时任务类，每秒取出超时队列中到期的订单并取消
+ */
+@Component
+@Slf4j
+public class OrderExpiryTask {
+
+    // 每批取出的订单数
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private OrderExpiryQueue orderExpiryQueue;
+
+    @Autowired
+    private OrderService orderService;
+
+    /**
+     * 取消到期未支付的订单
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void cancelExpiredOrder(){
+        Map<Long, LocalDateTime> dueOrders;
+        do {
+            try {
+                dueOrders = orderExpiryQueue.popDue(BATCH_SIZE);
+            } catch (Exception e) {
+                log.warn("读取订单超时队列失败", e);
+                return;
+            }
+            for (Map.Entry<Long, LocalDateTime> entry : dueOrders.entrySet()) {
+                try {
+                    if (orderService.cancelTimeoutOrder(entry.getKey(), entry.getValue())) {
+                        log.info("订单超时自动取消:{}", entry.getKey());
+                    }
+                } catch (Exception e) {
+                    // 取消失败的订单由定时任务兜底处理
+                    log.error("订单超时自动取消失败:{}", entry.getKey(), e);
+                }
+            }
+        } while (dueOrders.size() == BATCH_SIZE);
+    }
+}
@@ -27,8 +27,9 @@ public class OrderTask {
 
     /**
      * 处理超时订单的方法
+     * 超时订单由超时队列(OrderExpiryTask)及时取消，这里只作为兜底，处理超时队列遗漏的订单
      */
-    @Scheduled(cron = "0 * * * * ? ") // 每分钟触发一次
+    @Scheduled(cron = "0 0/30 * * * ?") // 每30分钟触发一次
     public void processTimeoutOrder(){
         log.info("定时处理超时订单:{}", LocalDateTime.now());
 //
@@ -47,7 +48,9 @@ public class OrderTask {
 //            }
 //        }
 
-        orderService.processTimeoutOrder(Orders.PENDING_PAYMENT, LocalDateTime.now());
+        long start = System.currentTimeMillis();
+        int count = orderService.processTimeoutOrder(Orders.PENDING_PAYMENT, LocalDateTime.now());
+        log.info("超时订单处理完成，取消订单数:{}，耗时{}ms", count, System.currentTimeMillis() - start);
     }
 
     /**
@@ -69,6 +72,8 @@ public class OrderTask {
 //            }
 //        }
 
-        orderService.processDeliveryOrder(Orders.DELIVERY_IN_PROGRESS, LocalDateTime.now());
+        long start = System.currentTimeMillis();
+        int count = orderService.processDeliveryOrder(Orders.DELIVERY_IN_PROGRESS, LocalDateTime.now());
+        log.info("派送中订单处理完成，完成订单数:{}，耗时{}ms", count, System.currentTimeMillis() - start);
     }
 }
@@ -0,0 +1,39 @@
+package com.sky.task;
+
+import com.sky.cart.ShoppingCartCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务类，将redis中有变化的购物车写回数据库
+ */
+@Component
+@Slf4j
+public class ShoppingCartFlushTask {
+
+    // 每批写回的用户数
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private ShoppingCartCache shoppingCartCache;
+
+    /**
+     * 写回有变化的购物车，直到没有待写回的数据
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void flush(){
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int count;
+        do {
+            count = shoppingCartCache.flush(BATCH_SIZE);
+            total += count;
+        } while (count == BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("购物车写回数据库:{}个用户，耗时{}ms", total, System.currentTimeMillis() - start);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.sky.task;
 
 import com.sky.websocket.WebSocketServer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 @Component
+@Slf4j
 public class WebSocketTask {
     @Autowired
     private WebSocketServer webSocketServer;
@@ -19,4 +21,14 @@ public class WebSocketTask {
     public void sendMessageToClient() {
         webSocketServer.sendToAllClient("这是来自服务端的消息：" + DateTimeFormatter.ofPattern("HH:mm:ss").format(LocalDateTime.now()));
     }
+
+    /**
+     * 每分钟输出一次WebSocket推送统计数据
+     */
+    @Scheduled(fixedRate = 60000)
+    public void logMetrics() {
+        if (webSocketServer.getSessionCount() > 0) {
+            log.info("WebSocket推送统计:{}", webSocketServer.stats());
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单消息(来单提醒、客户催单)集群广播
+ * 消息先发布到redis频道，每个节点订阅该频道后推送给本节点上连接的管理端浏览器
+ * 同一订单的同类消息(如支付回调重试重复发布的来单提醒、客户连续催单)在一段时间内只推送一次，
+ * 收到的消息在短时间窗口内攒批后推送
+ */
+@Component
+@Slf4j
+public class OrderEventBroadcaster implements MessageListener {
+
+    public static final int TYPE_NEW_ORDER = 1; // 来单提醒
+    public static final int TYPE_REMINDER = 2; // 客户催单
+
+    private static final String CHANNEL = "ws:order-event";
+    // 合并推送的时间窗口(毫秒)
+    private static final long BATCH_WINDOW_MSEC = 200;
+    // 同一订单的同类消息不重复推送的时间(毫秒)
+    private static final long DEDUP_TTL_MSEC = 60 * 1000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired
+    private WebSocketServer webSocketServer;
+
+    // 已推送的消息，key为 类型:订单id
+    private final LruCache<String, Boolean> processed = new LruCache<>(4096, DEDUP_TTL_MSEC);
+    // 等待推送的消息
+    private final Queue<JSONObject> pending = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-event-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, BATCH_WINDOW_MSEC, BATCH_WINDOW_MSEC, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushExecutor.shutdown();
+    }
+
+    /**
+     * 广播订单消息
+     * @param type    1表示来单提醒 2表示客户催单
+     * @param orderId 订单id
+     * @param message 推送给浏览器的消息内容(json)
+     */
+    public void publish(int type, Long orderId, String message) {
+        JSONObject event = new JSONObject();
+        event.put("type", type);
+        event.put("orderId", orderId);
+        event.put("message", message);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, event.toJSONString());
+        } catch (Exception e) {
+            // redis不可用时至少推送给本节点的客户端
+            log.warn("订单消息发布失败，仅推送本节点:{}", message, e);
+            receive(event);
+        }
+    }
+
+    /**
+     * 收到redis频道中的订单消息
+     * @param message
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            receive(JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            log.error("订单消息解析失败", e);
+        }
+    }
+
+    private void receive(JSONObject event) {
+        String key = event.getInteger("type") + ":" + event.getLong("orderId");
+        synchronized (processed) {
+            if (processed.get(key) != null) {
+                return;
+            }
+            processed.put(key, Boolean.TRUE);
+        }
+        pending.offer(event);
+    }
+
+    /**
+     * 推送时间窗口内收到的消息
+     */
+    private void flush() {
+        JSONObject event;
+        while ((event = pending.poll()) != null) {
+            try {
+                webSocketServer.sendToAllClient(event.getString("message"));
+            } catch (Exception e) {
+                log.error("订单消息推送失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.sky.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.Session;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 单个客户端的发送队列
+ * 消息先放入有界队列，再通过异步发送逐条发出，上一条发送完成后才发送下一条，调用方不会被慢客户端阻塞
+ * 发送失败(包括超过发送超时时间)时不再继续发送，交给onFailure处理(断开连接)
+ */
+@Slf4j
+public class SessionSender {
+
+    private final String sid;
+    private final Session session;
+    private final BlockingQueue<String> queue;
+    // 是否有消息正在发送，同一个会话同时只能有一个异步发送
+    private final AtomicBoolean sending = new AtomicBoolean();
+    // 连续丢弃的消息数，发送成功后清零
+    private final AtomicInteger consecutiveDrops = new AtomicInteger();
+    // 发送失败时的回调
+    private final Consumer<SessionSender> onFailure;
+
+    public SessionSender(String sid, Session session, int capacity, Consumer<SessionSender> onFailure) {
+        this.sid = sid;
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * 消息放入发送队列
+     * @param message
+     * @return 队列已满时返回false
+     */
+    public boolean offer(String message) {
+        if (!queue.offer(message)) {
+            consecutiveDrops.incrementAndGet();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    public int getConsecutiveDrops() {
+        return consecutiveDrops.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public String getSid() {
+        return sid;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * 没有正在发送的消息时，取出队首消息异步发送，发送完成后继续发送下一条
+     */
+    private void drain() {
+        if (!session.isOpen() || !sending.compareAndSet(false, true)) {
+            return;
+        }
+        String message = queue.poll();
+        if (message == null) {
+            sending.set(false);
+            // 释放发送标记前可能有新消息入队，再检查一次
+            if (!queue.isEmpty()) {
+                drain();
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            session.getAsyncRemote().sendText(message, result -> {
+                WebSocketMetrics.recordSend(System.nanoTime() - start, result.isOK());
+                if (!result.isOK()) {
+                    log.warn("WebSocket消息发送失败:{}", sid, result.getException());
+                    sending.set(false);
+                    onFailure.accept(this);
+                    return;
+                }
+                consecutiveDrops.set(0);
+                sending.set(false);
+                drain();
+            });
+        } catch (Exception e) {
+            WebSocketMetrics.recordSend(System.nanoTime() - start, false);
+            log.warn("WebSocket消息发送失败:{}", sid, e);
+            sending.set(false);
+            onFailure.accept(this);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.sky.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * WebSocket推送的统计数据：发送数、失败数、丢弃数、剔除的慢客户端数和发送耗时
+ */
+public class WebSocketMetrics {
+
+    private static final AtomicLong SENT = new AtomicLong();
+    private static final AtomicLong FAILED = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final AtomicLong EVICTED = new AtomicLong();
+    private static final AtomicLong TOTAL_NANOS = new AtomicLong();
+    private static final LongAccumulator MAX_NANOS = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次发送
+     * @param costNanos 从开始发送到发送完成的耗时(纳秒)
+     * @param success   是否成功
+     */
+    public static void recordSend(long costNanos, boolean success) {
+        if (success) {
+            SENT.incrementAndGet();
+        } else {
+            FAILED.incrementAndGet();
+        }
+        TOTAL_NANOS.addAndGet(costNanos);
+        MAX_NANOS.accumulate(costNanos);
+    }
+
+    /**
+     * 记录一条因发送队列已满而丢弃的消息
+     */
+    public static void recordDrop() {
+        DROPPED.incrementAndGet();
+    }
+
+    /**
+     * 记录一个被剔除的慢客户端
+     */
+    public static void recordEvict() {
+        EVICTED.incrementAndGet();
+    }
+
+    public static long getSent() {
+        return SENT.get();
+    }
+
+    public static long getFailed() {
+        return FAILED.get();
+    }
+
+    public static long getDropped() {
+        return DROPPED.get();
+    }
+
+    public static long getEvicted() {
+        return EVICTED.get();
+    }
+
+    /**
+     * 平均发送耗时(毫秒)
+     * @return
+     */
+    public static double getAvgMillis() {
+        long count = SENT.get() + FAILED.get();
+        return count == 0 ? 0.0 : TOTAL_NANOS.get() / 1e6 / count;
+    }
+
+    /**
+     * 最大发送耗时(毫秒)
+     * @return
+     */
+    public static double getMaxMillis() {
+        return MAX_NANOS.get() / 1e6;
+    }
+}
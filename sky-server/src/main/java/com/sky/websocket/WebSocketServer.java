@@ -1,33 +1,51 @@
 package com.sky.websocket;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket服务
+ * 每个客户端有独立的有界发送队列，群发时只把消息放入队列，由异步发送逐条发出，不阻塞调用方(如支付回调、催单请求)
+ * 发送队列持续积压的慢客户端，以及消息发送失败或超过发送超时时间未发送完成的客户端会被断开
  */
 @Component
 @ServerEndpoint("/ws/{sid}") //通过sid区分不同的客户端
+@Slf4j
 public class WebSocketServer {
 
-    //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    // 每个客户端发送队列的容量
+    private static final int QUEUE_CAPACITY = 256;
+    // 异步发送超时时间(毫秒)，单条消息超过该时间未发送完成按发送失败处理，断开客户端
+    private static final long SEND_TIMEOUT_MSEC = 10 * 1000;
+    // 连续丢弃的消息数超过该值时断开客户端
+    private static final int MAX_CONSECUTIVE_DROPS = 32;
+
+    //存放会话对象，连接建立和断开发生在不同的线程，需要使用线程安全的Map
+    private static final Map<String, SessionSender> sessionMap = new ConcurrentHashMap<>();
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        log.info("客户端：{}建立连接", sid);
+        session.getAsyncRemote().setSendTimeout(SEND_TIMEOUT_MSEC);
+        SessionSender old = sessionMap.put(sid, new SessionSender(sid, session, QUEUE_CAPACITY,
+                sender -> evict(sender, "发送失败")));
+        // 同一个客户端重复连接，关闭旧连接
+        if (old != null && old.getSession() != session) {
+            close(old.getSession(), CloseReason.CloseCodes.NORMAL_CLOSURE, "重复连接");
+        }
     }
 
     /**
@@ -37,7 +55,7 @@ public class WebSocketServer {
      */
     @OnMessage
     public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+        log.info("收到来自客户端：{}的信息:{}", sid, message);
     }
 
     /**
@@ -46,26 +64,93 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开:{}", sid);
+        remove(sid, session);
+    }
+
+    /**
+     * 连接异常调用的方法
+     *
+     * @param sid
+     */
+    @OnError
+    public void onError(Session session, @PathParam("sid") String sid, Throwable error) {
+        log.warn("连接异常:{}", sid, error);
+        remove(sid, session);
     }
 
     /**
      * 群发
+     * 消息放入每个客户端的发送队列后立即返回
      *
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+        for (SessionSender sender : sessionMap.values()) {
+            if (!sender.offer(message)) {
+                WebSocketMetrics.recordDrop();
+                if (sender.getConsecutiveDrops() > MAX_CONSECUTIVE_DROPS) {
+                    evict(sender, "接收过慢");
+                }
             }
         }
     }
 
+    /**
+     * 当前连接数
+     * @return
+     */
+    public int getSessionCount() {
+        return sessionMap.size();
+    }
+
+    /**
+     * 输出推送统计数据
+     * @return
+     */
+    public String stats() {
+        int queued = 0;
+        int maxQueued = 0;
+        for (SessionSender sender : sessionMap.values()) {
+            int size = sender.getQueueSize();
+            queued += size;
+            maxQueued = Math.max(maxQueued, size);
+        }
+        return String.format("sessions=%d, queued=%d, maxQueued=%d, sent=%d, failed=%d, dropped=%d, evicted=%d, avg=%.1fms, max=%.1fms",
+                sessionMap.size(), queued, maxQueued,
+                WebSocketMetrics.getSent(), WebSocketMetrics.getFailed(), WebSocketMetrics.getDropped(),
+                WebSocketMetrics.getEvicted(), WebSocketMetrics.getAvgMillis(), WebSocketMetrics.getMaxMillis());
+    }
+
+    /**
+     * 断开慢客户端或发送失败的客户端
+     * @param sender
+     * @param reason
+     */
+    private void evict(SessionSender sender, String reason) {
+        if (sessionMap.remove(sender.getSid(), sender)) {
+            WebSocketMetrics.recordEvict();
+            log.warn("客户端：{}{}，断开连接，积压消息数:{}", sender.getSid(), reason, sender.getQueueSize());
+            close(sender.getSession(), CloseReason.CloseCodes.TRY_AGAIN_LATER, reason);
+        }
+    }
+
+    /**
+     * 只移除当前会话，避免同一个sid重新连接后新会话被旧会话的关闭事件移除
+     * @param sid
+     * @param session
+     */
+    private void remove(String sid, Session session) {
+        sessionMap.computeIfPresent(sid, (key, sender) -> sender.getSession() == session ? null : sender);
+    }
+
+    private void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (Exception e) {
+            log.warn("关闭WebSocket连接失败", e);
+        }
+    }
+
 }
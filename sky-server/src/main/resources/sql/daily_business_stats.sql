@@ -0,0 +1,16 @@
+-- 每日营业数据汇总表
+-- 已结束日期的报表数据直接读取该表，当天的数据实时统计
+CREATE TABLE IF NOT EXISTS `daily_business_stats` (
+    `stat_date`                   date           NOT NULL COMMENT '统计日期',
+    `turnover`                    decimal(12, 2) NOT NULL DEFAULT 0 COMMENT '营业额',
+    `total_orders`                int            NOT NULL DEFAULT 0 COMMENT '订单总数',
+    `valid_orders`                int            NOT NULL DEFAULT 0 COMMENT '有效订单数',
+    `new_users`                   int            NOT NULL DEFAULT 0 COMMENT '新增用户数',
+    `pending_payment_orders`      int            NOT NULL DEFAULT 0 COMMENT '待付款订单数',
+    `to_be_confirmed_orders`      int            NOT NULL DEFAULT 0 COMMENT '待接单订单数',
+    `confirmed_orders`            int            NOT NULL DEFAULT 0 COMMENT '已接单订单数',
+    `delivery_in_progress_orders` int            NOT NULL DEFAULT 0 COMMENT '派送中订单数',
+    `cancelled_orders`            int            NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    `update_time`                 datetime       NOT NULL COMMENT '汇总时间',
+    PRIMARY KEY (`stat_date`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '每日营业数据汇总';
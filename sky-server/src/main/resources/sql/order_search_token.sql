@@ -0,0 +1,10 @@
+-- 订单搜索倒排索引表
+-- 每行是一个词条和包含该词条的订单，按词条查询得到订单id，避免对订单表和订单明细表做 like '%x%' 全表扫描
+-- 词条：n:订单号的连续3个字符  p:手机号的后缀(至少4位)  d:菜品名称的单个字符和连续2个字符
+-- 建表后调用 POST /admin/order/searchIndex/rebuild 为已有订单建立索引
+CREATE TABLE IF NOT EXISTS `order_search_token` (
+    `token`    varchar(32) NOT NULL COMMENT '词条',
+    `order_id` bigint      NOT NULL COMMENT '订单id',
+    PRIMARY KEY (`token`, `order_id`),
+    KEY `idx_order_id` (`order_id`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_bin COMMENT = '订单搜索倒排索引';
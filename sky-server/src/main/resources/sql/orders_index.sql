@@ -0,0 +1,7 @@
+-- 订单表索引
+-- 定时任务按 状态 + 下单时间 批量处理超时和派送中的订单
+ALTER TABLE `orders` ADD INDEX `idx_status_order_time` (`status`, `order_time`);
+-- 游标分页按 下单时间, id 倒序查询，用户端历史订单按 用户 + 下单时间 查询
+-- InnoDB二级索引包含主键id，可直接按(order_time, id)定位游标位置
+ALTER TABLE `orders` ADD INDEX `idx_user_order_time` (`user_id`, `order_time`);
+ALTER TABLE `orders` ADD INDEX `idx_order_time` (`order_time`);
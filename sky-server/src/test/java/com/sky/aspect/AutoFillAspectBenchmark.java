@@ -0,0 +1,100 @@
+package com.sky.aspect;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.sky.annotation.AutoFill;
+import com.sky.constant.AutoFillConstant;
+import com.sky.context.BaseContext;
+import com.sky.entity.Dish;
+import com.sky.enumeration.OperationType;
+import com.sky.mapper.DishMapper;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+
+/**
+ * 比较调用带@AutoFill注解的mapper方法时，不使用切面、原来每次反射查找并调用setter的切面、
+ * 按实体类缓存MethodHandle的AutoFillAspect三种情况下每次调用的耗时
+ * 直接运行main方法，mapper为不访问数据库的空实现，由Spring AOP代理(与运行时相同)
+ */
+public class AutoFillAspectBenchmark {
+
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 1000000;
+
+    public static void main(String[] args) {
+        // 关闭切面中的日志输出，只比较赋值本身的耗时
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        BaseContext.setCurrentId(1L);
+
+        DishMapper target = (DishMapper) Proxy.newProxyInstance(DishMapper.class.getClassLoader(),
+                new Class<?>[]{DishMapper.class}, (proxy, method, methodArgs) -> null);
+
+        run("无切面", target);
+        run("反射(原实现)", proxy(target, new ReflectionAutoFillAspect()));
+        run("MethodHandle", proxy(target, new AutoFillAspect()));
+    }
+
+    private static DishMapper proxy(DishMapper target, Object aspect) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.addAspect(aspect);
+        return proxyFactory.getProxy();
+    }
+
+    private static void run(String name, DishMapper dishMapper) {
+        Dish dish = new Dish();
+        for (int i = 0; i < WARMUP; i++) {
+            dishMapper.insert(dish);
+            dishMapper.update(dish);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            dishMapper.insert(dish);
+        }
+        long insertNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            dishMapper.update(dish);
+        }
+        long updateNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("  %-14s insert %6d ns  update %6d ns  createUser=%s%n",
+                name, insertNanos, updateNanos, dish.getCreateUser());
+    }
+
+    /**
+     * 原来的实现：每次调用都通过getDeclaredMethod查找setter再反射调用
+     */
+    @Aspect
+    public static class ReflectionAutoFillAspect {
+
+        @Before("execution(* com.sky.mapper.*.*(..)) && @annotation(com.sky.annotation.AutoFill)")
+        public void autoFill(JoinPoint joinPoint) throws Exception {
+            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+            OperationType operationType = signature.getMethod().getAnnotation(AutoFill.class).value();
+            Object entity = joinPoint.getArgs()[0];
+            LocalDateTime now = LocalDateTime.now();
+            Long currentId = BaseContext.getCurrentId();
+
+            if (operationType == OperationType.INSERT) {
+                Method setCreateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+                Method setCreateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
+                setCreateTime.invoke(entity, now);
+                setCreateUser.invoke(entity, currentId);
+            }
+            Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
+            setUpdateTime.invoke(entity, now);
+            setUpdateUser.invoke(entity, currentId);
+        }
+    }
+}
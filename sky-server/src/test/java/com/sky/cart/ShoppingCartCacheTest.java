@@ -0,0 +1,224 @@
+package com.sky.cart;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class ShoppingCartCacheTest {
+
+    private static final Long USER_ID = 7L;
+    private static final List<String> KEYS = Arrays.asList("cart:count:7", "cart:item:7", "cart:dirty");
+    private static final String TTL = String.valueOf(TimeUnit.DAYS.toSeconds(7));
+
+    private final DefaultRedisScript<Long> incrementScript = script("INCREMENT_SCRIPT");
+    private final DefaultRedisScript<Long> decrementScript = script("DECREMENT_SCRIPT");
+    private final DefaultRedisScript<Long> loadScript = script("LOAD_SCRIPT");
+
+    private StringRedisTemplate stringRedisTemplate;
+    private SetOperations<String, String> setOperations;
+    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartCache shoppingCartCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        setOperations = mock(SetOperations.class);
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        shoppingCartMapper = mock(ShoppingCartMapper.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        shoppingCartCache = new ShoppingCartCache();
+        ReflectionTestUtils.setField(shoppingCartCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(shoppingCartCache, "shoppingCartMapper", shoppingCartMapper);
+        ReflectionTestUtils.setField(shoppingCartCache, "transactionTemplate", transactionTemplate);
+    }
+
+    /**
+     * 新商品：商品信息和数量在同一个脚本中写入
+     */
+    @Test
+    public void incrementNewItemSendsItemJson() {
+        loaded(true);
+        when(stringRedisTemplate.execute(same(incrementScript), anyList(), any(), any(), any(), any())).thenReturn(1L);
+
+        assertTrue(shoppingCartCache.increment(USER_ID, dish(1L, "微辣", "宫保鸡丁")));
+        verify(stringRedisTemplate).execute(same(incrementScript), eq(KEYS), eq("7"), eq(TTL), eq("dish:1:微辣"),
+                argThat(json -> "宫保鸡丁".equals(JSON.parseObject((String) json).getString("name"))));
+    }
+
+    /**
+     * 只传商品标识时不传商品信息，商品不在购物车中时返回false，由调用方补全商品信息后重试
+     */
+    @Test
+    public void incrementUnknownItemWithoutDetailsReturnsFalse() {
+        loaded(true);
+        when(stringRedisTemplate.execute(same(incrementScript), anyList(), any(), any(), any(), any())).thenReturn(0L);
+
+        assertFalse(shoppingCartCache.increment(USER_ID, dish(1L, null, null)));
+        verify(stringRedisTemplate).execute(same(incrementScript), eq(KEYS), eq("7"), eq(TTL), eq("dish:1:"), eq(""));
+    }
+
+    @Test
+    public void decrementSendsField() {
+        loaded(true);
+
+        shoppingCartCache.decrement(USER_ID, ShoppingCart.builder().setmealId(3L).build());
+        verify(stringRedisTemplate).execute(same(decrementScript), eq(KEYS), eq("7"), eq(TTL), eq("setmeal:3"));
+    }
+
+    /**
+     * 购物车已在redis中时，加减商品不访问数据库
+     */
+    @Test
+    public void clicksDoNotTouchDatabase() {
+        loaded(true);
+        when(stringRedisTemplate.execute(same(incrementScript), anyList(), any(), any(), any(), any())).thenReturn(1L);
+
+        for (int i = 0; i < 1000; i++) {
+            shoppingCartCache.increment(USER_ID, dish(1L, "微辣", "宫保鸡丁"));
+            shoppingCartCache.decrement(USER_ID, dish(1L, "微辣", null));
+        }
+        verifyNoInteractions(shoppingCartMapper);
+    }
+
+    /**
+     * 购物车不在redis中时，先从数据库加载再修改
+     */
+    @Test
+    public void loadsFromDatabaseOnFirstAccess() {
+        loaded(false);
+        ShoppingCart existing = dish(2L, null, "鱼香肉丝");
+        existing.setNumber(3);
+        when(shoppingCartMapper.list(any())).thenReturn(Collections.singletonList(existing));
+
+        shoppingCartCache.decrement(USER_ID, dish(2L, null, null));
+        verify(stringRedisTemplate).execute(same(loadScript), eq(KEYS), eq("7"), eq(TTL), eq("dish:2:"), anyString(), eq("3"));
+    }
+
+    /**
+     * 写回：用redis中的快照在一个事务中替换数据库中的购物车
+     */
+    @Test
+    public void flushReplacesCartInDatabase() {
+        loaded(true);
+        when(setOperations.pop("cart:dirty", 100)).thenReturn(Collections.singletonList("7"));
+        snapshot();
+
+        assertEquals(1, shoppingCartCache.flush(100));
+
+        ArgumentCaptor<List<ShoppingCart>> captor = ArgumentCaptor.forClass(List.class);
+        verify(shoppingCartMapper).deleteByUserId(USER_ID);
+        verify(shoppingCartMapper).insertBatch(captor.capture());
+        List<ShoppingCart> list = captor.getValue();
+        assertEquals(2, list.size());
+        // 按加入时间排序
+        assertEquals("宫保鸡丁", list.get(0).getName());
+        assertEquals(2, list.get(0).getNumber());
+        assertEquals(USER_ID, list.get(0).getUserId());
+        assertEquals("鱼香肉丝", list.get(1).getName());
+        assertEquals(1, list.get(1).getNumber());
+        verify(setOperations, never()).add(anyString(), any());
+    }
+
+    /**
+     * 写回失败时重新标记，等待下次写回
+     */
+    @Test
+    public void flushFailureMarksDirtyAgain() {
+        loaded(true);
+        when(setOperations.pop("cart:dirty", 100)).thenReturn(Collections.singletonList("7"));
+        snapshot();
+        doThrow(new RuntimeException("db down")).when(shoppingCartMapper).deleteByUserId(USER_ID);
+
+        shoppingCartCache.flush(100);
+        verify(setOperations).add("cart:dirty", "7");
+    }
+
+    @Test
+    public void flushWithoutDirtyCartsDoesNothing() {
+        when(setOperations.pop(anyString(), anyLong())).thenReturn(Collections.emptyList());
+
+        assertEquals(0, shoppingCartCache.flush(100));
+        verifyNoInteractions(shoppingCartMapper);
+    }
+
+    private void loaded(boolean loaded) {
+        when(stringRedisTemplate.hasKey("cart:count:7")).thenReturn(loaded);
+    }
+
+    /**
+     * 模拟MULTI/EXEC读取到的数量hash和商品信息hash
+     */
+    private void snapshot() {
+        ShoppingCart first = dish(1L, "微辣", "宫保鸡丁");
+        first.setCreateTime(LocalDateTime.of(2025, 1, 1, 12, 0));
+        ShoppingCart second = dish(2L, null, "鱼香肉丝");
+        second.setCreateTime(LocalDateTime.of(2025, 1, 1, 12, 5));
+
+        Map<Object, Object> counts = new HashMap<>();
+        counts.put("#", "1");
+        counts.put("dish:1:微辣", "2");
+        counts.put("dish:2:", "1");
+        Map<Object, Object> items = new HashMap<>();
+        items.put("dish:2:", JSON.toJSONString(second));
+        items.put("dish:1:微辣", JSON.toJSONString(first));
+        when(stringRedisTemplate.execute(any(SessionCallback.class))).thenReturn(Arrays.asList(counts, items));
+    }
+
+    private ShoppingCart dish(Long dishId, String flavor, String name) {
+        return ShoppingCart.builder()
+                .dishId(dishId)
+                .dishFlavor(flavor)
+                .name(name)
+                .amount(name == null ? null : new BigDecimal("28.00"))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DefaultRedisScript<Long> script(String name) {
+        return (DefaultRedisScript<Long>) ReflectionTestUtils.getField(ShoppingCartCache.class, name);
+    }
+}
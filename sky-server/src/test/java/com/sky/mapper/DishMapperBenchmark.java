@@ -0,0 +1,111 @@
+package com.sky.mapper;
+
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Dish;
+import com.sky.vo.DishVO;
+import org.springframework.beans.BeanUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 比较查询分类下的菜品及口味时，逐个菜品查询口味并拷贝属性(n+1)与连接查询由结果映射直接封装DishVO的往返次数和耗时
+ * 直接运行main方法，使用内嵌的H2数据库，每次往返增加200微秒的延迟模拟应用与数据库之间的网络耗时
+ * 可通过第一个参数指定往返延迟(微秒)
+ */
+public class DishMapperBenchmark {
+
+    // 各分类的菜品数
+    private static final int[] DISHES_PER_CATEGORY = {10, 40, 100};
+    private static final int FLAVORS_PER_DISH = 3;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    public static void main(String[] args) throws Exception {
+        long roundTripMicros = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        try (EmbeddedDatabase database = new EmbeddedDatabase("jdbc:h2:mem:dish", roundTripMicros,
+                "mapper/DishMapper.xml", "mapper/DishFlavorMapper.xml")) {
+            prepare(database);
+            DishMapper dishMapper = database.getMapper(DishMapper.class);
+            DishFlavorMapper dishFlavorMapper = database.getMapper(DishFlavorMapper.class);
+
+            System.out.printf("每个菜品%d种口味，每次往返延迟%dus%n", FLAVORS_PER_DISH, roundTripMicros);
+            for (int i = 0; i < DISHES_PER_CATEGORY.length; i++) {
+                int dishCount = DISHES_PER_CATEGORY[i];
+                Dish dish = Dish.builder().categoryId((long) i + 1).status(StatusConstant.ENABLE).build();
+                System.out.printf("分类下%d个菜品%n", dishCount);
+                run(database, "逐个查询口味", dishCount, () -> {
+                    List<DishVO> dishVOList = new ArrayList<>();
+                    for (Dish d : dishMapper.list(dish)) {
+                        DishVO dishVO = new DishVO();
+                        BeanUtils.copyProperties(d, dishVO);
+                        dishVO.setFlavors(dishFlavorMapper.getByDishId(d.getId()));
+                        dishVOList.add(dishVO);
+                    }
+                    return dishVOList;
+                });
+                run(database, "连接查询", dishCount, () -> dishMapper.listWithFlavor(dish));
+            }
+        }
+    }
+
+    private static void prepare(EmbeddedDatabase database) throws Exception {
+        database.execute(
+                "create table dish (id bigint auto_increment primary key, name varchar(32), category_id bigint, " +
+                        "price decimal(10,2), image varchar(255), description varchar(255), status int, " +
+                        "create_time datetime, update_time datetime, create_user bigint, update_user bigint)",
+                "create table dish_flavor (id bigint auto_increment primary key, dish_id bigint, name varchar(32), value varchar(255))",
+                "create index idx_category_id on dish (category_id)",
+                "create index idx_dish_id on dish_flavor (dish_id)");
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement dish = connection.prepareStatement(
+                     "insert into dish (id, name, category_id, price, image, description, status, create_time, update_time) " +
+                             "values (?, ?, ?, 28.00, 'https://example.com/dish.png', '招牌菜', 1, now(), now())");
+             PreparedStatement flavor = connection.prepareStatement(
+                     "insert into dish_flavor (dish_id, name, value) values (?, ?, '[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]')")) {
+            long id = 0;
+            for (int i = 0; i < DISHES_PER_CATEGORY.length; i++) {
+                for (int j = 0; j < DISHES_PER_CATEGORY[i]; j++) {
+                    dish.setLong(1, ++id);
+                    dish.setString(2, "菜品" + id);
+                    dish.setLong(3, i + 1);
+                    dish.addBatch();
+                    for (int k = 0; k < FLAVORS_PER_DISH; k++) {
+                        flavor.setLong(1, id);
+                        flavor.setString(2, "口味" + k);
+                        flavor.addBatch();
+                    }
+                }
+            }
+            dish.executeBatch();
+            flavor.executeBatch();
+        }
+    }
+
+    private static void run(EmbeddedDatabase database, String name, int dishCount, Query query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.list();
+        }
+
+        long roundTrips = database.getRoundTrips();
+        long[] costs = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            List<DishVO> dishVOList = query.list();
+            costs[i] = System.nanoTime() - start;
+            if (dishVOList.size() != dishCount || dishVOList.get(0).getFlavors().size() != FLAVORS_PER_DISH) {
+                throw new IllegalStateException("查询结果不正确");
+            }
+        }
+        System.out.printf("  %-8s 往返 %4d 次  p50 %7.2f ms  p99 %7.2f ms%n", name,
+                (database.getRoundTrips() - roundTrips) / ITERATIONS,
+                EmbeddedDatabase.percentileMillis(costs, 0.5), EmbeddedDatabase.percentileMillis(costs, 0.99));
+    }
+
+    private interface Query {
+        List<DishVO> list();
+    }
+}
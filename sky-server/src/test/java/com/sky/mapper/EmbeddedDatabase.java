@@ -0,0 +1,177 @@
+package com.sky.mapper;
+
+import com.github.pagehelper.PageInterceptor;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * 基准测试使用的内嵌数据库(H2，MySQL兼容模式)，使用项目中的mapper XML执行查询
+ * 统计语句执行次数(即数据库往返次数)，并可为每次往返增加固定的延迟，模拟应用与数据库之间的网络耗时
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+
+    private final JdbcDataSource h2;
+    private final long roundTripNanos;
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final SqlSession sqlSession;
+
+    /**
+     * @param url              H2连接地址，如 jdbc:h2:mem:bench
+     * @param roundTripMicros  每次往返增加的延迟(微秒)
+     * @param mapperXmls       需要加载的mapper XML，如 mapper/OrderMapper.xml
+     */
+    public EmbeddedDatabase(String url, long roundTripMicros, String... mapperXmls) throws Exception {
+        h2 = new JdbcDataSource();
+        // 口味表的value列在H2中是关键字
+        // 数据未变化时H2会直接返回相同查询上一次的结果，关闭后每次查询都实际执行
+        h2.setURL(url + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE;OPTIMIZE_REUSE_RESULTS=0");
+        roundTripNanos = roundTripMicros * 1000;
+
+        Configuration configuration = new Configuration(
+                new Environment("benchmark", new JdbcTransactionFactory(), new CountingDataSource()));
+        configuration.setMapUnderscoreToCamelCase(true);
+        // 同一个会话中重复执行相同的查询时不使用一级缓存，每次都访问数据库
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.getTypeAliasRegistry().registerAliases("com.sky.entity");
+        // 与运行时相同使用PageHelper分页，未调用PageHelper.startPage的查询不受影响
+        PageInterceptor pageInterceptor = new PageInterceptor();
+        pageInterceptor.setProperties(new Properties());
+        configuration.addInterceptor(pageInterceptor);
+        for (String mapperXml : mapperXmls) {
+            try (InputStream inputStream = Resources.getResourceAsStream(mapperXml)) {
+                new XMLMapperBuilder(inputStream, configuration, mapperXml, configuration.getSqlFragments()).parse();
+            }
+        }
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        sqlSession = sqlSessionFactory.openSession(true);
+    }
+
+    public <T> T getMapper(Class<T> type) {
+        return sqlSession.getMapper(type);
+    }
+
+    /**
+     * 执行建表、造数据等语句，不计入往返次数
+     * @param sqls
+     */
+    public void execute(String... sqls) throws SQLException {
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * 直接获取连接，不计入往返次数
+     * @return
+     */
+    public Connection getConnection() throws SQLException {
+        return h2.getConnection();
+    }
+
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    public void close() {
+        sqlSession.close();
+    }
+
+    /**
+     * 计算百分位数
+     * @param nanos 每次操作的耗时(纳秒)
+     * @param percentile 如 0.99
+     * @return 毫秒
+     */
+    public static double percentileMillis(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+
+    /**
+     * 代理连接和语句，语句每次执行时计数并等待模拟的网络延迟
+     */
+    private class CountingDataSource implements DataSource {
+
+        public Connection getConnection() throws SQLException {
+            return proxy(Connection.class, h2.getConnection());
+        }
+
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        private <T> T proxy(Class<T> type, T target) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+                if (result instanceof Statement && method.getName().endsWith("Statement")) {
+                    return proxy((Class<Statement>) method.getReturnType(), (Statement) result);
+                }
+                if (target instanceof Statement && method.getName().startsWith("execute")) {
+                    roundTrips.incrementAndGet();
+                    if (roundTripNanos > 0) {
+                        LockSupport.parkNanos(roundTripNanos);
+                    }
+                }
+                return result;
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        public void setLoginTimeout(int seconds) {
+        }
+
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("not a wrapper");
+        }
+
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.sky.mapper;
+
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.vo.OrderVO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * 比较订单分页查询中逐个查询订单明细(N+1)、按订单id批量查询明细、订单和明细一次关联查询的数据库往返次数和耗时
+ * 直接运行main方法，使用内嵌的H2数据库，每次往返增加200微秒的延迟模拟应用与数据库之间的网络耗时
+ * 可通过第一个参数指定往返延迟(微秒)
+ */
+public class OrderDetailMapperBenchmark {
+
+    private static final int ORDERS = 5000;
+    private static final int DETAILS_PER_ORDER = 3;
+    private static final int WARMUP = 100;
+    private static final int ITERATIONS = 300;
+
+    public static void main(String[] args) throws Exception {
+        long roundTripMicros = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        try (EmbeddedDatabase database = new EmbeddedDatabase("jdbc:h2:mem:order_detail", roundTripMicros,
+                "mapper/OrderMapper.xml", "mapper/OrderDetailMapper.xml")) {
+            prepare(database);
+            OrderMapper orderMapper = database.getMapper(OrderMapper.class);
+            OrderDetailMapper orderDetailMapper = database.getMapper(OrderDetailMapper.class);
+
+            System.out.printf("订单%d个，每个订单%d条明细，每次往返延迟%dus%n", ORDERS, DETAILS_PER_ORDER, roundTripMicros);
+            for (int pageSize : new int[]{10, 50, 200}) {
+                System.out.printf("每页%d个订单%n", pageSize);
+                run(database, "逐个查询明细", pageSize, lastId -> {
+                    List<Orders> ordersList = orderMapper.getByIdGT(lastId, pageSize);
+                    for (Orders orders : ordersList) {
+                        orderDetailMapper.getByOrderId(orders.getId());
+                    }
+                });
+                run(database, "批量查询明细", pageSize, lastId -> {
+                    List<Orders> ordersList = orderMapper.getByIdGT(lastId, pageSize);
+                    List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+                    Map<Long, List<OrderDetail>> orderDetailMap = orderDetailMapper.getByOrderIds(orderIds).stream()
+                            .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+                    check(orderDetailMap.size() == ordersList.size());
+                });
+                run(database, "关联查询(resultMap)", pageSize, lastId -> {
+                    List<Orders> ordersList = orderMapper.getByIdGT(lastId, pageSize);
+                    List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+                    List<OrderVO> orderVOList = orderDetailMapper.getOrderVOByIds(orderIds);
+                    check(orderVOList.size() == ordersList.size()
+                            && orderVOList.get(0).getOrderDetailList().size() == DETAILS_PER_ORDER);
+                });
+            }
+        }
+    }
+
+    private static void prepare(EmbeddedDatabase database) throws Exception {
+        database.execute(
+                "create table orders (id bigint primary key, number varchar(50), status int, user_id bigint, address_book_id bigint, " +
+                        "order_time datetime, checkout_time datetime, pay_method int, pay_status tinyint, amount decimal(10,2), " +
+                        "remark varchar(100), phone varchar(11), address varchar(255), user_name varchar(32), consignee varchar(32), " +
+                        "cancel_reason varchar(255), rejection_reason varchar(255), cancel_time datetime, " +
+                        "estimated_delivery_time datetime, delivery_status tinyint, delivery_time datetime, pack_amount int, " +
+                        "tableware_number int, tableware_status tinyint)",
+                "create table order_detail (id bigint auto_increment primary key, name varchar(32), image varchar(255), " +
+                        "order_id bigint, dish_id bigint, setmeal_id bigint, dish_flavor varchar(50), number int, amount decimal(10,2))",
+                "create index idx_order_id on order_detail (order_id)");
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement orders = connection.prepareStatement(
+                     "insert into orders (id, number, status, user_id, order_time, pay_status, amount, phone, address, consignee) " +
+                             "values (?, ?, 5, ?, now(), 1, 88.00, '13800000000', '北京市海淀区', '张三')");
+             PreparedStatement detail = connection.prepareStatement(
+                     "insert into order_detail (name, image, order_id, dish_id, dish_flavor, number, amount) " +
+                             "values (?, 'https://example.com/dish.png', ?, ?, '微辣', 2, 28.00)")) {
+            for (long id = 1; id <= ORDERS; id++) {
+                orders.setLong(1, id);
+                orders.setString(2, String.valueOf(1_000_000 + id));
+                orders.setLong(3, id % 100);
+                orders.addBatch();
+                for (int i = 0; i < DETAILS_PER_ORDER; i++) {
+                    detail.setString(1, "菜品" + i);
+                    detail.setLong(2, id);
+                    detail.setLong(3, i);
+                    detail.addBatch();
+                }
+            }
+            orders.executeBatch();
+            detail.executeBatch();
+        }
+    }
+
+    private static void run(EmbeddedDatabase database, String name, int pageSize, Page page) {
+        Random random = new Random(1);
+        for (int i = 0; i < WARMUP; i++) {
+            page.query(random.nextInt(ORDERS - pageSize));
+        }
+
+        long roundTrips = database.getRoundTrips();
+        long[] costs = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            page.query(random.nextInt(ORDERS - pageSize));
+            costs[i] = System.nanoTime() - start;
+        }
+        System.out.printf("  %-12s 往返 %4d 次/页  p50 %7.2f ms  p99 %7.2f ms%n", name,
+                (database.getRoundTrips() - roundTrips) / ITERATIONS,
+                EmbeddedDatabase.percentileMillis(costs, 0.5), EmbeddedDatabase.percentileMillis(costs, 0.99));
+    }
+
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new IllegalStateException("查询结果不正确");
+        }
+    }
+
+    private interface Page {
+        void query(long lastId);
+    }
+}
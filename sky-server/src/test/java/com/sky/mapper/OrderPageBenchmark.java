@@ -0,0 +1,164 @@
+package com.sky.mapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.entity.Orders;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 比较管理端订单搜索(无筛选条件)翻到不同深度时，偏移分页(PageHelper，每页都统计总数)与游标分页(总数已缓存)的耗时
+ * 直接运行main方法，使用H2文件数据库，订单表带(order_time)索引，与orders_index.sql相同
+ * H2保存了表的行数，不带条件的count不需要扫描，MySQL(InnoDB)中偏移分页每页统计总数的耗时还要更高
+ * 参数依次为订单数(默认500万)、数据库文件路径(默认./target/order_page_benchmark)，订单数相同时复用已生成的数据
+ */
+public class OrderPageBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int WARMUP = 2;
+    private static final int ITERATIONS = 10;
+    private static final LocalDateTime BEGIN = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        // 关闭mapper的SQL日志，只比较查询本身的耗时
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 5_000_000;
+        String path = args.length > 1 ? args[1] : "./target/order_page_benchmark";
+
+        try (EmbeddedDatabase database = new EmbeddedDatabase("jdbc:h2:file:" + path, 0, "mapper/OrderMapper.xml")) {
+            prepare(database, rows);
+            OrderMapper orderMapper = database.getMapper(OrderMapper.class);
+            OrdersPageQueryDTO query = new OrdersPageQueryDTO();
+            query.setPageSize(PAGE_SIZE);
+
+            long start = System.nanoTime();
+            long total = orderMapper.countByQuery(query);
+            System.out.printf("订单%d个，每页%d个，统计总数 %.2f ms(游标分页每分钟按查询条件统计一次)%n",
+                    total, PAGE_SIZE, (System.nanoTime() - start) / 1e6);
+
+            long lastPage = (rows + PAGE_SIZE - 1) / PAGE_SIZE;
+            for (long page : new long[]{1, 100, 10_000, lastPage / 2, lastPage}) {
+                if (page > lastPage) {
+                    continue;
+                }
+                setCursor(database, query, (page - 1) * PAGE_SIZE);
+                // 偏移分页只按下单时间排序，下单时间相同的订单顺序不确定，比较两种分页每页的下单时间
+                List<LocalDateTime> offsetTimes = orderTimes(offsetPage(orderMapper, query, page));
+                List<LocalDateTime> cursorTimes = orderTimes(orderMapper.cursorQuery(query));
+                check(offsetTimes.equals(cursorTimes.subList(0, Math.min(PAGE_SIZE, cursorTimes.size()))));
+
+                System.out.printf("第%d页%n", page);
+                run("偏移分页", () -> offsetPage(orderMapper, query, page));
+                run("游标分页", () -> orderMapper.cursorQuery(query));
+            }
+        }
+    }
+
+    private static Page<Orders> offsetPage(OrderMapper orderMapper, OrdersPageQueryDTO query, long page) {
+        PageHelper.startPage((int) page, PAGE_SIZE);
+        return orderMapper.pageQuery(query);
+    }
+
+    /**
+     * 游标设置为偏移分页上一页的最后一个订单，第一页不设置游标
+     */
+    private static void setCursor(EmbeddedDatabase database, OrdersPageQueryDTO query, long offset) throws Exception {
+        query.setCursorTime(null);
+        query.setCursorId(null);
+        if (offset == 0) {
+            return;
+        }
+        try (Connection connection = database.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select order_time, id from orders order by order_time desc, id desc limit 1 offset ?")) {
+            statement.setLong(1, offset - 1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                check(resultSet.next());
+                query.setCursorTime(resultSet.getTimestamp(1).toLocalDateTime());
+                query.setCursorId(resultSet.getLong(2));
+            }
+        }
+    }
+
+    private static void prepare(EmbeddedDatabase database, long rows) throws Exception {
+        database.execute(
+                "create table if not exists orders (id bigint primary key, number varchar(50), status int, user_id bigint, " +
+                        "address_book_id bigint, order_time datetime, checkout_time datetime, pay_method int, pay_status tinyint, " +
+                        "amount decimal(10,2), remark varchar(100), phone varchar(11), address varchar(255), user_name varchar(32), " +
+                        "consignee varchar(32), cancel_reason varchar(255), rejection_reason varchar(255), cancel_time datetime, " +
+                        "estimated_delivery_time datetime, delivery_status tinyint, delivery_time datetime, pack_amount int, " +
+                        "tableware_number int, tableware_status tinyint)",
+                // H2不能倒序扫描升序索引，建立倒序索引，相当于InnoDB倒序扫描(order_time)索引(包含主键id)
+                "create index if not exists idx_order_time_id on orders (order_time desc, id desc)");
+        try (Connection connection = database.getConnection()) {
+            try (ResultSet resultSet = connection.createStatement().executeQuery("select count(*) from orders")) {
+                resultSet.next();
+                if (resultSet.getLong(1) == rows) {
+                    return;
+                }
+            }
+            connection.createStatement().execute("truncate table orders");
+
+            System.out.printf("生成%d个订单...%n", rows);
+            long start = System.nanoTime();
+            connection.setAutoCommit(false);
+            Random random = new Random(1);
+            try (PreparedStatement orders = connection.prepareStatement(
+                    "insert into orders (id, number, status, user_id, order_time, pay_status, amount, phone, address, consignee) " +
+                            "values (?, ?, ?, ?, ?, 1, 88.00, '13800000000', '北京市海淀区', '张三')")) {
+                for (long id = 1; id <= rows; id++) {
+                    orders.setLong(1, id);
+                    orders.setString(2, String.valueOf(1_000_000_000L + id));
+                    orders.setInt(3, 1 + random.nextInt(6));
+                    orders.setLong(4, id % 10000);
+                    // 每两个订单下单时间相同，游标需要按id区分
+                    orders.setTimestamp(5, Timestamp.valueOf(BEGIN.plusSeconds(id / 2)));
+                    orders.addBatch();
+                    if (id % 10000 == 0) {
+                        orders.executeBatch();
+                        connection.commit();
+                    }
+                }
+                orders.executeBatch();
+                connection.commit();
+            }
+            System.out.printf("生成完成，耗时%d秒%n", (System.nanoTime() - start) / 1_000_000_000);
+        }
+    }
+
+    private static void run(String name, Supplier<List<Orders>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        long[] costs = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            page.get();
+            costs[i] = System.nanoTime() - start;
+        }
+        System.out.printf("  %-8s p50 %9.2f ms  p99 %9.2f ms%n", name,
+                EmbeddedDatabase.percentileMillis(costs, 0.5), EmbeddedDatabase.percentileMillis(costs, 0.99));
+    }
+
+    private static List<LocalDateTime> orderTimes(List<Orders> ordersList) {
+        return ordersList.stream().map(Orders::getOrderTime).collect(Collectors.toList());
+    }
+
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new IllegalStateException("查询结果不正确");
+        }
+    }
+}
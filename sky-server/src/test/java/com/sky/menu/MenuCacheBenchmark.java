@@ -0,0 +1,133 @@
+package com.sky.menu;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 比较清理某一类型的全部菜单缓存时，原来的KEYS+DEL、版本号+1(evictAll)和SCAN分批删除(purge)的耗时，
+ * 以及清理期间其它客户端请求的最大延迟(KEYS会阻塞redis，期间所有请求都要等待)
+ * redis中除菜单缓存外还有大量无关的key(默认10万个)
+ * 直接运行main方法，参数依次为 redis地址(默认127.0.0.1) 端口(默认6379) database(默认15) 无关key数量(默认100000)
+ * 注意：会清空指定的database
+ */
+public class MenuCacheBenchmark {
+
+    // 分类数
+    private static final int CATEGORIES = 200;
+    // 每个分类保留的缓存版本数，最新版本之前的都是旧版本
+    private static final int VERSIONS = 5;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6379;
+        int database = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+        int unrelatedKeys = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+
+        StringRedisTemplate stringRedisTemplate = template(host, port, database);
+        // 探测请求使用单独的连接，代表其它业务请求
+        StringRedisTemplate probeTemplate = template(host, port, database);
+
+        MenuCache menuCache = new MenuCache();
+        ReflectionTestUtils.setField(menuCache, "stringRedisTemplate", stringRedisTemplate);
+
+        System.out.printf("无关key %d个，菜品缓存 %d个分类 x %d个版本%n", unrelatedKeys, CATEGORIES, VERSIONS);
+        run("KEYS+DEL", menuCache, stringRedisTemplate, probeTemplate, unrelatedKeys, () -> {
+            Set<String> keys = stringRedisTemplate.keys(MenuCache.DISH + "_*");
+            return keys.isEmpty() ? 0 : stringRedisTemplate.delete(keys);
+        });
+        run("evictAll(版本号+1)", menuCache, stringRedisTemplate, probeTemplate, unrelatedKeys, () -> {
+            menuCache.evictAll(MenuCache.DISH);
+            return 0;
+        });
+        run("purge(旧版本)", menuCache, stringRedisTemplate, probeTemplate, unrelatedKeys,
+                () -> menuCache.purge(MenuCache.DISH, true));
+        run("purge(全部)", menuCache, stringRedisTemplate, probeTemplate, unrelatedKeys,
+                () -> menuCache.purge(MenuCache.DISH, false));
+
+        flushDb(stringRedisTemplate);
+        System.exit(0);
+    }
+
+    private static StringRedisTemplate template(String host, int port, int database) {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setDatabase(database);
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        return new StringRedisTemplate(connectionFactory);
+    }
+
+    private static void run(String name, MenuCache menuCache, StringRedisTemplate stringRedisTemplate,
+                            StringRedisTemplate probeTemplate, int unrelatedKeys, Operation operation) throws Exception {
+        long totalNanos = 0;
+        long maxProbeNanos = 0;
+        long deleted = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            prepare(menuCache, stringRedisTemplate, unrelatedKeys);
+            // 清理期间持续发送请求，记录单个请求的最大耗时
+            AtomicBoolean running = new AtomicBoolean(true);
+            long[] probeMax = new long[1];
+            Thread probe = new Thread(() -> {
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    probeTemplate.opsForValue().get("bench:probe");
+                    probeMax[0] = Math.max(probeMax[0], System.nanoTime() - start);
+                }
+            });
+            probe.start();
+            Thread.sleep(20);
+
+            long start = System.nanoTime();
+            deleted = operation.run();
+            totalNanos += System.nanoTime() - start;
+
+            Thread.sleep(20);
+            running.set(false);
+            probe.join();
+            maxProbeNanos = Math.max(maxProbeNanos, probeMax[0]);
+        }
+        System.out.printf("  %-18s 耗时 %8.2f ms  删除 %5d 个key  清理期间其它请求最大延迟 %7.2f ms%n",
+                name, totalNanos / 1e6 / ROUNDS, deleted, maxProbeNanos / 1e6);
+    }
+
+    /**
+     * 写入无关的key和各版本的菜品缓存，当前版本号为VERSIONS - 1
+     */
+    private static void prepare(MenuCache menuCache, StringRedisTemplate stringRedisTemplate, int unrelatedKeys) {
+        flushDb(stringRedisTemplate);
+        // 重新从redis读取版本号
+        ((Map<?, ?>) ReflectionTestUtils.getField(menuCache, "versions")).clear();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (int i = 0; i < unrelatedKeys; i++) {
+                redis.set("cart:count:" + i, "1");
+            }
+            for (int version = 0; version < VERSIONS; version++) {
+                for (int categoryId = 1; categoryId <= CATEGORIES; categoryId++) {
+                    redis.set(MenuCache.DISH + "_" + version + "_" + categoryId, "[]");
+                }
+            }
+            redis.set("menu:version:" + MenuCache.DISH, String.valueOf(VERSIONS - 1));
+            return null;
+        });
+    }
+
+    private static void flushDb(StringRedisTemplate stringRedisTemplate) {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.flushDb();
+            return null;
+        });
+    }
+
+    private interface Operation {
+        long run();
+    }
+}
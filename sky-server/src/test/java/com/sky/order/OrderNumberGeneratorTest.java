@@ -0,0 +1,143 @@
+package com.sky.order;
+
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.OrderNumberProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 20000;
+
+    /**
+     * 多线程直接生成，订单号不重复
+     */
+    @Test
+    public void uniqueAcrossThreads() throws Exception {
+        assertUnique(generator(properties(1, 0), null));
+    }
+
+    /**
+     * 开启预生成缓冲区时，多线程取出的订单号不重复
+     */
+    @Test
+    public void uniqueAcrossThreadsWithBuffer() throws Exception {
+        assertUnique(generator(properties(1, 1024), null));
+    }
+
+    /**
+     * 租约到期后停止生成订单号
+     */
+    @Test
+    public void stopsWhenLeaseExpired() throws Exception {
+        StringRedisTemplate stringRedisTemplate = redis();
+        OrderNumberProperties properties = properties(-1, 0);
+        properties.setLeaseTtl(100);
+        OrderNumberGenerator generator = generator(properties, stringRedisTemplate);
+
+        generator.nextNumber();
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertThrows(OrderBusinessException.class, generator::nextNumber);
+    }
+
+    /**
+     * 续租失败重新租用到新的机器id后，不再返回使用原机器id预生成的订单号
+     */
+    @Test
+    public void discardsBufferWhenWorkerIdChanges() throws Exception {
+        StringRedisTemplate stringRedisTemplate = redis();
+        OrderNumberGenerator generator = generator(properties(-1, 64), stringRedisTemplate);
+        assertEquals(0, workerIdOf(generator.nextNumber()));
+
+        // 原租约已被其它节点占用，续租失败，重新租用到机器id 1
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(0L);
+        generator.renewLease();
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1, workerIdOf(generator.nextNumber()));
+        }
+    }
+
+    private void assertUnique(OrderNumberGenerator generator) throws Exception {
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < PER_THREAD; j++) {
+                        numbers.add(generator.nextNumber());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * PER_THREAD, numbers.size());
+    }
+
+    private OrderNumberProperties properties(long workerId, int bufferSize) {
+        OrderNumberProperties properties = new OrderNumberProperties();
+        properties.setDatacenterId(1);
+        properties.setWorkerId(workerId);
+        properties.setBufferSize(bufferSize);
+        return properties;
+    }
+
+    private OrderNumberGenerator generator(OrderNumberProperties properties, StringRedisTemplate stringRedisTemplate) {
+        OrderNumberGenerator generator = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(generator, "orderNumberProperties", properties);
+        ReflectionTestUtils.setField(generator, "stringRedisTemplate", stringRedisTemplate);
+        generator.init();
+        return generator;
+    }
+
+    /**
+     * 机器id 0 只能租用一次，机器id 1 可以租用
+     */
+    @SuppressWarnings("unchecked")
+    private StringRedisTemplate redis() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+        when(valueOperations.setIfAbsent(eq("order:worker:1:0"), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(true, false);
+        when(valueOperations.setIfAbsent(eq("order:worker:1:1"), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        return stringRedisTemplate;
+    }
+
+    private long workerIdOf(String number) {
+        return (Long.parseLong(number) >> 12) & 31;
+    }
+}
@@ -0,0 +1,77 @@
+package com.sky.order;
+
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.mapper.OrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderPageTotalCacheTest {
+
+    private ValueOperations<String, String> valueOperations;
+    private OrderMapper orderMapper;
+    private OrderPageTotalCache orderPageTotalCache;
+    private final OrdersPageQueryDTO query = new OrdersPageQueryDTO();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        orderMapper = mock(OrderMapper.class);
+        when(orderMapper.countByQuery(query)).thenReturn(42L);
+
+        orderPageTotalCache = new OrderPageTotalCache();
+        ReflectionTestUtils.setField(orderPageTotalCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(orderPageTotalCache, "orderMapper", orderMapper);
+    }
+
+    /**
+     * 缓存命中时不查询数据库
+     */
+    @Test
+    public void hitSkipsDatabase() {
+        when(valueOperations.get(anyString())).thenReturn("7");
+
+        assertEquals(7, orderPageTotalCache.get(query));
+        verify(orderMapper, never()).countByQuery(query);
+    }
+
+    /**
+     * 未命中时查询数据库并缓存
+     */
+    @Test
+    public void missCountsAndCaches() {
+        assertEquals(42, orderPageTotalCache.get(query));
+        verify(valueOperations).set(anyString(), eq("42"), anyLong(), eq(TimeUnit.SECONDS));
+    }
+
+    /**
+     * redis读写失败时降级为查询数据库，不影响翻页
+     */
+    @Test
+    public void redisFailureFallsBackToDatabase() {
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("redis不可用"));
+        doThrow(new RedisConnectionFailureException("redis不可用"))
+                .when(valueOperations).set(anyString(), anyString(), anyLong(), eq(TimeUnit.SECONDS));
+
+        assertEquals(42, orderPageTotalCache.get(query));
+        verify(orderMapper).countByQuery(query);
+    }
+}
@@ -0,0 +1,50 @@
+package com.sky.redis;
+
+import com.sky.vo.DishVO;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.List;
+
+/**
+ * 比较JDK序列化和CompactRedisSerializer的数据大小和编解码耗时
+ * 直接运行main方法，数据为不同数量菜品的List<DishVO>(即菜品缓存的value)
+ */
+public class CompactRedisSerializerBenchmark {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 50000;
+
+    public static void main(String[] args) {
+        RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+        RedisSerializer<Object> compact = new CompactRedisSerializer();
+
+        for (int count : new int[]{1, 10, 50}) {
+            List<DishVO> dishVOList = CompactRedisSerializerTest.dishes(count);
+            System.out.printf("%d个菜品%n", count);
+            run("jdk", jdk, dishVOList);
+            run("compact", compact, dishVOList);
+        }
+    }
+
+    private static void run(String name, RedisSerializer<Object> serializer, Object value) {
+        byte[] bytes = serializer.serialize(value);
+        for (int i = 0; i < WARMUP; i++) {
+            serializer.deserialize(serializer.serialize(value));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.serialize(value);
+        }
+        long encodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.deserialize(bytes);
+        }
+        long decodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("  %-8s %7d bytes  encode %7d ns  decode %7d ns%n", name, bytes.length, encodeNanos, decodeNanos);
+    }
+}
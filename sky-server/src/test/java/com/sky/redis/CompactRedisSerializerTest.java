@@ -0,0 +1,104 @@
+package com.sky.redis;
+
+import com.sky.entity.DishFlavor;
+import com.sky.entity.Setmeal;
+import com.sky.vo.DishVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+
+    /**
+     * 菜品缓存(List<DishVO>)，数据超过压缩阈值
+     */
+    @Test
+    public void dishListRoundTrip() {
+        List<DishVO> dishVOList = dishes(50);
+        assertEquals(dishVOList, serializer.deserialize(serializer.serialize(dishVOList)));
+    }
+
+    /**
+     * 套餐缓存(List<Setmeal>)
+     */
+    @Test
+    public void setmealListRoundTrip() {
+        List<Setmeal> setmealList = new ArrayList<>();
+        setmealList.add(Setmeal.builder()
+                .id(1L)
+                .categoryId(13L)
+                .name("商务套餐A")
+                .price(new BigDecimal("38.00"))
+                .status(1)
+                .createTime(LocalDateTime.of(2023, 1, 1, 12, 0))
+                .build());
+        assertEquals(setmealList, serializer.deserialize(serializer.serialize(setmealList)));
+    }
+
+    /**
+     * 营业状态(SHOP_STATUS)
+     */
+    @Test
+    public void shopStatusRoundTrip() {
+        assertEquals(1, serializer.deserialize(serializer.serialize(1)));
+    }
+
+    /**
+     * 升级前JDK序列化写入的数据仍能读取
+     */
+    @Test
+    public void readsJdkSerializedValue() {
+        List<DishVO> dishVOList = dishes(3);
+        byte[] bytes = new JdkSerializationRedisSerializer().serialize(dishVOList);
+        assertEquals(dishVOList, serializer.deserialize(bytes));
+    }
+
+    /**
+     * 数据中的类名不在允许的包中时拒绝反序列化
+     */
+    @Test
+    public void rejectsUnknownType() {
+        byte[] json = "[\"javax.swing.JLabel\",{}]".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[json.length + 2];
+        bytes[0] = CompactRedisSerializer.FORMAT_VERSION;
+        System.arraycopy(json, 0, bytes, 2, json.length);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    static List<DishVO> dishes(int count) {
+        List<DishVO> dishVOList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DishFlavor flavor = DishFlavor.builder()
+                    .id((long) i)
+                    .dishId((long) i)
+                    .name("辣度")
+                    .value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]")
+                    .build();
+            dishVOList.add(DishVO.builder()
+                    .id((long) i)
+                    .name("宫保鸡丁" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("28.00"))
+                    .image("https://sky-take-out.oss-cn-beijing.aliyuncs.com/dish-" + i + ".png")
+                    .description("鸡肉、花生、干辣椒")
+                    .status(1)
+                    .updateTime(LocalDateTime.of(2023, 1, 1, 12, 0))
+                    .categoryName("川菜")
+                    .flavors(new ArrayList<>(Collections.singletonList(flavor)))
+                    .build());
+        }
+        return dishVOList;
+    }
+}
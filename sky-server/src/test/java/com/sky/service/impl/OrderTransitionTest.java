@@ -0,0 +1,312 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.dto.OrdersCancelDTO;
+import com.sky.dto.OrdersConfirmDTO;
+import com.sky.dto.OrdersRejectionDTO;
+import com.sky.entity.Orders;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderCounters;
+import com.sky.order.OrderTransition;
+import com.sky.service.BusinessStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单状态流转的并发测试
+ * OrderMapper的带状态条件的update用CAS模拟数据库的行锁和where条件：同一订单同时只有一个请求能修改成功
+ */
+public class OrderTransitionTest {
+
+    private static final int ORDERS = 200;
+    private static final int THREADS = 16;
+
+    // 模拟的订单表：订单id -> 订单状态
+    private final Map<Long, AtomicReference<Integer>> statuses = new ConcurrentHashMap<>();
+    // 订单id -> 支付状态
+    private final Map<Long, AtomicReference<Integer>> payStatuses = new ConcurrentHashMap<>();
+
+    private OrderMapper orderMapper;
+    private OrderCounters orderCounters;
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    public void setUp() {
+        orderMapper = mock(OrderMapper.class);
+        when(orderMapper.updateByIdAndStatus(any(), anyList())).thenAnswer(invocation ->
+                compareAndSet(invocation.getArgument(0), invocation.getArgument(1), false));
+        when(orderMapper.cancelByIdAndStatus(any(), anyList())).thenAnswer(invocation ->
+                compareAndSet(invocation.getArgument(0), invocation.getArgument(1), true));
+        when(orderMapper.getById(anyLong())).thenAnswer(invocation -> {
+            AtomicReference<Integer> status = statuses.get(invocation.<Long>getArgument(0));
+            return status == null ? null : Orders.builder().id(invocation.getArgument(0)).status(status.get()).build();
+        });
+        orderCounters = mock(OrderCounters.class);
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(orderService, "orderCounters", orderCounters);
+        ReflectionTestUtils.setField(orderService, "businessStatsService", mock(BusinessStatsService.class));
+    }
+
+    /**
+     * 多个商家端同时接单：每个订单只有一个请求成功，其余请求返回订单状态错误
+     */
+    @Test
+    public void concurrentConfirmSucceedsOnce() throws Exception {
+        createOrders(Orders.TO_BE_CONFIRMED, Orders.PAID);
+
+        Map<Long, AtomicInteger> successes = race(id -> {
+            OrdersConfirmDTO ordersConfirmDTO = new OrdersConfirmDTO();
+            ordersConfirmDTO.setId(id);
+            orderService.confirm(ordersConfirmDTO);
+        });
+
+        assertOncePerOrder(successes);
+        assertAllInStatus(Orders.CONFIRMED);
+        verify(orderCounters, times(ORDERS)).move(anyLong(), eq(OrderTransition.CONFIRM));
+    }
+
+    /**
+     * 商家接单、商家拒单、用户取消同时操作同一个待接单的订单：只有一个操作生效，拒单和取消时已支付的订单改为退款
+     */
+    @Test
+    public void concurrentConfirmRejectCancelSucceedsOnce() throws Exception {
+        createOrders(Orders.TO_BE_CONFIRMED, Orders.PAID);
+        AtomicInteger round = new AtomicInteger();
+
+        Map<Long, AtomicInteger> successes = race(id -> {
+            switch (round.getAndIncrement() % 3) {
+                case 0:
+                    OrdersConfirmDTO ordersConfirmDTO = new OrdersConfirmDTO();
+                    ordersConfirmDTO.setId(id);
+                    orderService.confirm(ordersConfirmDTO);
+                    break;
+                case 1:
+                    OrdersRejectionDTO ordersRejectionDTO = new OrdersRejectionDTO();
+                    ordersRejectionDTO.setId(id);
+                    ordersRejectionDTO.setRejectionReason("餐品已售完");
+                    orderService.rejection(ordersRejectionDTO);
+                    break;
+                default:
+                    orderService.userCancelById(id);
+            }
+        });
+
+        assertOncePerOrder(successes);
+        for (Long id : statuses.keySet()) {
+            Integer status = statuses.get(id).get();
+            Integer payStatus = payStatuses.get(id).get();
+            if (status.equals(Orders.CANCELLED)) {
+                assertEquals(Orders.REFUND, payStatus);
+            } else {
+                assertEquals(Orders.CONFIRMED, status);
+                assertEquals(Orders.PAID, payStatus);
+            }
+        }
+    }
+
+    /**
+     * 同时完成和取消派送中的订单：只有一个操作生效
+     */
+    @Test
+    public void concurrentCompleteAndCancelSucceedsOnce() throws Exception {
+        createOrders(Orders.DELIVERY_IN_PROGRESS, Orders.PAID);
+        AtomicInteger round = new AtomicInteger();
+
+        Map<Long, AtomicInteger> successes = race(id -> {
+            if (round.getAndIncrement() % 2 == 0) {
+                orderService.complete(id);
+            } else {
+                orderService.cancle(cancelDTO(id));
+            }
+        });
+
+        assertOncePerOrder(successes);
+        for (AtomicReference<Integer> status : statuses.values()) {
+            Integer value = status.get();
+            assertEquals(true, value.equals(Orders.COMPLETED) || value.equals(Orders.CANCELLED));
+        }
+    }
+
+    /**
+     * 行为变化：商家取消订单不再允许取消已完成或已取消的订单(原来不检查状态，已完成的订单也会被改为已取消并退款)
+     */
+    @Test
+    public void adminCancelRejectsFinishedOrders() {
+        statuses.put(1L, new AtomicReference<>(Orders.COMPLETED));
+        payStatuses.put(1L, new AtomicReference<>(Orders.PAID));
+        statuses.put(2L, new AtomicReference<>(Orders.CANCELLED));
+        payStatuses.put(2L, new AtomicReference<>(Orders.REFUND));
+
+        assertStatusError(() -> orderService.cancle(cancelDTO(1L)));
+        assertStatusError(() -> orderService.cancle(cancelDTO(2L)));
+        assertEquals(Orders.COMPLETED, statuses.get(1L).get());
+        assertEquals(Orders.PAID, payStatuses.get(1L).get());
+        verify(orderCounters, never()).move(anyLong(), any());
+    }
+
+    /**
+     * 行为变化：接单要求订单为待接单(原来直接把任意状态的订单改为已接单，如待付款、已取消的订单)
+     */
+    @Test
+    public void confirmRequiresToBeConfirmed() {
+        Integer[] invalid = {Orders.PENDING_PAYMENT, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS,
+                Orders.COMPLETED, Orders.CANCELLED};
+        for (int i = 0; i < invalid.length; i++) {
+            long id = i + 1;
+            statuses.put(id, new AtomicReference<>(invalid[i]));
+            payStatuses.put(id, new AtomicReference<>(Orders.UN_PAID));
+            OrdersConfirmDTO ordersConfirmDTO = new OrdersConfirmDTO();
+            ordersConfirmDTO.setId(id);
+
+            assertStatusError(() -> orderService.confirm(ordersConfirmDTO));
+            assertEquals(invalid[i], statuses.get(id).get());
+        }
+    }
+
+    /**
+     * 批量取消超时订单时部分订单已被支付：只有被本次取消的订单修改计数
+     */
+    @Test
+    public void sweepMovesOnlyUpdatedOrders() {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+        when(orderMapper.getMinOrderTimeByStatusAndOrderTimeLT(eq(Orders.PENDING_PAYMENT), any()))
+                .thenReturn(LocalDateTime.now().minusHours(1));
+        when(orderMapper.getIdsByStatusAndOrderTimeLT(eq(Orders.PENDING_PAYMENT), any(), anyInt())).thenReturn(ids);
+        when(orderMapper.updateStatusByIdsAndStatus(any(), eq(ids), eq(Orders.PENDING_PAYMENT))).thenReturn(2);
+        when(orderMapper.getIdsByIdsAndStatus(ids, Orders.CANCELLED)).thenReturn(Arrays.asList(1L, 3L));
+
+        assertEquals(2, orderService.processTimeoutOrder(Orders.PENDING_PAYMENT, LocalDateTime.now()));
+        verify(orderCounters).move(Arrays.asList(1L, 3L), OrderTransition.TIMEOUT_CANCEL);
+    }
+
+    @Test
+    public void missingOrderIsNotFound() {
+        OrderBusinessException e = assertThrows(OrderBusinessException.class, () -> orderService.complete(404L));
+        assertEquals(MessageConstant.ORDER_NOT_FOUND, e.getMessage());
+    }
+
+    /**
+     * 模拟 update orders set status = ? where id = ? and status in (...)
+     */
+    private int compareAndSet(Orders orders, List<Integer> from, boolean refund) {
+        AtomicReference<Integer> status = statuses.get(orders.getId());
+        if (status == null) {
+            return 0;
+        }
+        Integer current;
+        do {
+            current = status.get();
+            if (!from.contains(current)) {
+                return 0;
+            }
+            // 扩大并发窗口
+            Thread.yield();
+        } while (!status.compareAndSet(current, orders.getStatus()));
+        if (refund) {
+            payStatuses.get(orders.getId()).compareAndSet(Orders.PAID, Orders.REFUND);
+        }
+        return 1;
+    }
+
+    private void createOrders(Integer status, Integer payStatus) {
+        for (long id = 1; id <= ORDERS; id++) {
+            statuses.put(id, new AtomicReference<>(status));
+            payStatuses.put(id, new AtomicReference<>(payStatus));
+        }
+    }
+
+    /**
+     * THREADS个线程同时对每个订单执行操作，统计每个订单成功的次数
+     * 失败的操作必须是订单状态错误
+     */
+    private Map<Long, AtomicInteger> race(Operation operation) throws Exception {
+        Map<Long, AtomicInteger> successes = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (long id = 1; id <= ORDERS; id++) {
+                long orderId = id;
+                successes.put(orderId, new AtomicInteger());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            operation.run(orderId);
+                            successes.get(orderId).incrementAndGet();
+                        } catch (OrderBusinessException e) {
+                            assertEquals(MessageConstant.ORDER_STATUS_ERROR, e.getMessage());
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return successes;
+    }
+
+    private void assertOncePerOrder(Map<Long, AtomicInteger> successes) {
+        assertEquals(ORDERS, successes.size());
+        successes.forEach((id, count) -> assertEquals(1, count.get(), "订单" + id));
+    }
+
+    private void assertAllInStatus(Integer status) {
+        statuses.values().forEach(s -> assertEquals(status, s.get()));
+    }
+
+    private void assertStatusError(Operation.Call call) {
+        OrderBusinessException e = assertThrows(OrderBusinessException.class, call::run);
+        assertEquals(MessageConstant.ORDER_STATUS_ERROR, e.getMessage());
+    }
+
+    private OrdersCancelDTO cancelDTO(Long id) {
+        OrdersCancelDTO ordersCancelDTO = new OrdersCancelDTO();
+        ordersCancelDTO.setId(id);
+        ordersCancelDTO.setCancelReason("用户要求取消");
+        return ordersCancelDTO;
+    }
+
+    private interface Operation {
+        void run(Long id) throws Exception;
+
+        interface Call {
+            void run() throws Exception;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.sky.service.impl;
+
+import com.sky.entity.DailyBusinessStats;
+import com.sky.service.BusinessStatsService;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 比较导出不同天数的运营数据报表时，原来的XSSFWorkbook整体在内存中生成和SXSSF流式写出的耗时与堆内存峰值
+ * 直接运行main方法(建议加上 -Xmx512m 观察内存是否受限)，每天的营业数据由模拟的BusinessStatsService返回，
+ * 报表写出到只统计字节数的输出流，不占用内存
+ * 接口限制一次最多导出366天，更长的区间只用于观察内存是否随行数增长
+ */
+public class ReportExportBenchmark {
+
+    private static final int[] DAYS = {30, 366, 3660, 36600};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        for (int days : DAYS) {
+            LocalDate end = LocalDate.of(2025, 12, 31);
+            LocalDate begin = end.minusDays(days - 1);
+            List<DailyBusinessStats> dailyStats = dailyStats(begin, days);
+
+            BusinessStatsService businessStatsService = mock(BusinessStatsService.class);
+            when(businessStatsService.getDailyStats(any(), any())).thenReturn(dailyStats);
+            ReportServiceImpl reportService = new ReportServiceImpl();
+            ReflectionTestUtils.setField(reportService, "businessStatsService", businessStatsService);
+
+            System.out.printf("%d天%n", days);
+            run("XSSF", () -> {
+                CountingOutputStream out = new CountingOutputStream();
+                writeInMemory(dailyStats, out);
+                return out.count;
+            });
+            run("SXSSF", () -> {
+                CountingOutputStream out = new CountingOutputStream();
+                HttpServletResponse response = mock(HttpServletResponse.class);
+                when(response.getOutputStream()).thenReturn(out);
+                reportService.exportBusinessData(begin, end, response);
+                return out.count;
+            });
+        }
+    }
+
+    private static List<DailyBusinessStats> dailyStats(LocalDate begin, int days) {
+        List<DailyBusinessStats> dailyStats = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            dailyStats.add(DailyBusinessStats.builder()
+                    .statDate(begin.plusDays(i))
+                    .turnover(new BigDecimal("12345.60"))
+                    .totalOrders(320)
+                    .validOrders(300)
+                    .newUsers(25)
+                    .build());
+        }
+        return dailyStats;
+    }
+
+    /**
+     * 原来的做法：基于模板创建XSSFWorkbook，所有行都保存在内存中
+     */
+    private static void writeInMemory(List<DailyBusinessStats> dailyStats, CountingOutputStream out) throws Exception {
+        try (InputStream in = ReportExportBenchmark.class.getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
+             XSSFWorkbook excel = new XSSFWorkbook(in)) {
+            XSSFSheet sheet = excel.getSheet("Sheet1");
+            for (int i = 0; i < dailyStats.size(); i++) {
+                DailyBusinessStats stats = dailyStats.get(i);
+                XSSFRow row = sheet.getRow(7 + i);
+                if (row == null) {
+                    row = sheet.createRow(7 + i);
+                }
+                row.createCell(1).setCellValue(stats.getStatDate().toString());
+                row.createCell(2).setCellValue(stats.getTurnover().doubleValue());
+                row.createCell(3).setCellValue(stats.getValidOrders());
+                row.createCell(4).setCellValue((double) stats.getValidOrders() / stats.getTotalOrders());
+                row.createCell(5).setCellValue(stats.getTurnover().doubleValue() / stats.getValidOrders());
+                row.createCell(6).setCellValue(stats.getNewUsers());
+            }
+            excel.write(out);
+        }
+    }
+
+    private static void run(String name, Export export) throws Exception {
+        // 第一轮预热
+        export.write();
+
+        long totalNanos = 0;
+        long peakBytes = 0;
+        long size = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            System.gc();
+            long baseline = heapUsed();
+            resetPeak();
+            long start = System.nanoTime();
+            size = export.write();
+            totalNanos += System.nanoTime() - start;
+            peakBytes = Math.max(peakBytes, heapPeak() - baseline);
+        }
+        System.out.printf("  %-6s 耗时 %8.1f ms  堆内存峰值增长 %7.1f MB  文件 %7.1f KB%n",
+                name, totalNanos / 1e6 / ROUNDS, peakBytes / 1024.0 / 1024.0, size / 1024.0);
+    }
+
+    private static long heapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static void resetPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private interface Export {
+        long write() throws Exception;
+    }
+
+    /**
+     * 只统计写出字节数的输出流
+     */
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private long count;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public boolean isReady() {
+            return true;
+        }
+
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.sky.utils;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.vo.OrderVO;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 比较BeanUtils.copyProperties和BeanCopyUtil.copyProperties每次拷贝的耗时
+ * 直接运行main方法，拷贝的类型为下单、订单查询、购物车转订单明细中实际使用的类型
+ */
+public class BeanCopyUtilBenchmark {
+
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 1000000;
+
+    public static void main(String[] args) {
+        OrdersSubmitDTO ordersSubmitDTO = new OrdersSubmitDTO();
+        ordersSubmitDTO.setAddressBookId(1L);
+        ordersSubmitDTO.setPayMethod(1);
+        ordersSubmitDTO.setRemark("少放辣");
+        ordersSubmitDTO.setEstimatedDeliveryTime(LocalDateTime.now());
+        ordersSubmitDTO.setDeliveryStatus(1);
+        ordersSubmitDTO.setTablewareNumber(2);
+        ordersSubmitDTO.setTablewareStatus(0);
+        ordersSubmitDTO.setPackAmount(4);
+        ordersSubmitDTO.setAmount(new BigDecimal("88.00"));
+
+        Orders orders = new Orders();
+        BeanUtils.copyProperties(ordersSubmitDTO, orders);
+        orders.setId(1L);
+        orders.setNumber("1717000000000");
+        orders.setStatus(Orders.TO_BE_CONFIRMED);
+        orders.setUserId(7L);
+        orders.setOrderTime(LocalDateTime.now());
+        orders.setPhone("13800000000");
+        orders.setAddress("北京市海淀区");
+        orders.setConsignee("张三");
+
+        ShoppingCart cart = ShoppingCart.builder()
+                .id(1L).name("宫保鸡丁").userId(7L).dishId(1L).dishFlavor("微辣")
+                .number(2).amount(new BigDecimal("28.00")).image("https://example.com/dish.png")
+                .createTime(LocalDateTime.now())
+                .build();
+
+        run("OrdersSubmitDTO -> Orders", ordersSubmitDTO, Orders::new);
+        run("Orders -> OrderVO", orders, OrderVO::new);
+        run("ShoppingCart -> OrderDetail", cart, OrderDetail::new);
+    }
+
+    private static <T> void run(String name, Object source, Supplier<T> target) {
+        System.out.println(name);
+        measure("BeanUtils", source, target, BeanUtils::copyProperties);
+        measure("BeanCopyUtil", source, target, BeanCopyUtil::copyProperties);
+    }
+
+    private static <T> void measure(String name, Object source, Supplier<T> target, BiConsumer<Object, Object> copy) {
+        for (int i = 0; i < WARMUP; i++) {
+            copy.accept(source, target.get());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            copy.accept(source, target.get());
+        }
+        System.out.printf("  %-14s %6d ns/次%n", name, (System.nanoTime() - start) / ITERATIONS);
+    }
+}
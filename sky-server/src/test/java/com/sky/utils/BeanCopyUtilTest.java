@@ -0,0 +1,208 @@
+package com.sky.utils;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.vo.OrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.FatalBeanException;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BeanCopyUtilTest {
+
+    /**
+     * 下单：OrdersSubmitDTO -> Orders
+     */
+    @Test
+    public void copiesOrdersSubmitDTO() throws Exception {
+        assertSameAsSpring(filled(OrdersSubmitDTO.class), Orders.class);
+    }
+
+    /**
+     * 订单查询：Orders -> OrderVO(子类)
+     */
+    @Test
+    public void copiesOrdersToOrderVO() throws Exception {
+        assertSameAsSpring(filled(Orders.class), OrderVO.class);
+    }
+
+    /**
+     * 购物车转订单明细：ShoppingCart -> OrderDetail
+     */
+    @Test
+    public void copiesShoppingCartToOrderDetail() throws Exception {
+        assertSameAsSpring(filled(ShoppingCart.class), OrderDetail.class);
+    }
+
+    /**
+     * 源对象中为null的属性同样拷贝，覆盖目标对象中的值
+     */
+    @Test
+    public void copiesNullValues() throws Exception {
+        ShoppingCart cart = new ShoppingCart();
+        OrderDetail expected = filled(OrderDetail.class);
+        OrderDetail actual = filled(OrderDetail.class);
+        BeanUtils.copyProperties(cart, expected);
+        BeanCopyUtil.copyProperties(cart, actual);
+        assertNull(actual.getName());
+        assertProperties(expected, actual);
+    }
+
+    /**
+     * 包装类型的null不能拷贝到基本类型，与BeanUtils一样抛出FatalBeanException
+     */
+    @Test
+    public void nullToPrimitiveFailsLikeSpring() {
+        OrdersSubmitDTO ordersSubmitDTO = new OrdersSubmitDTO();
+        assertThrows(FatalBeanException.class, () -> BeanUtils.copyProperties(ordersSubmitDTO, new Orders()));
+        assertThrows(FatalBeanException.class, () -> BeanCopyUtil.copyProperties(ordersSubmitDTO, new Orders()));
+    }
+
+    /**
+     * 泛型参数不兼容的属性不拷贝，泛型兼容的拷贝
+     */
+    @Test
+    public void checksGenericTypes() throws Exception {
+        GenericSource source = new GenericSource();
+        source.setIds(Arrays.asList(1L, 2L));
+        source.setNames(Arrays.asList("a", "b"));
+        assertSameAsSpring(source, GenericTarget.class);
+
+        GenericTarget target = new GenericTarget();
+        BeanCopyUtil.copyProperties(source, target);
+        assertNull(target.getIds());
+        assertEquals(Arrays.asList("a", "b"), target.getNames());
+    }
+
+    /**
+     * getter/setter声明在非public类中时，与BeanUtils一样设置为可访问后拷贝
+     */
+    @Test
+    public void copiesFromNonPublicClass() throws Exception {
+        HiddenSource source = new HiddenSource();
+        source.setName("宫保鸡丁");
+        ShoppingCart cart = new ShoppingCart();
+        BeanCopyUtil.copyProperties(source, cart);
+        assertEquals("宫保鸡丁", cart.getName());
+        assertSameAsSpring(source, ShoppingCart.class);
+    }
+
+    private static <T> void assertSameAsSpring(Object source, Class<T> targetClass) throws Exception {
+        T expected = targetClass.getDeclaredConstructor().newInstance();
+        T actual = targetClass.getDeclaredConstructor().newInstance();
+        BeanUtils.copyProperties(source, expected);
+        BeanCopyUtil.copyProperties(source, actual);
+        assertProperties(expected, actual);
+    }
+
+    private static void assertProperties(Object expected, Object actual) throws Exception {
+        for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(expected.getClass())) {
+            Method readMethod = pd.getReadMethod();
+            if (readMethod != null) {
+                readMethod.setAccessible(true);
+                assertEquals(readMethod.invoke(expected), readMethod.invoke(actual), pd.getName());
+            }
+        }
+    }
+
+    /**
+     * 创建对象，每个可写属性按类型设置不同的非null值
+     */
+    private static <T> T filled(Class<T> type) throws Exception {
+        T bean = type.getDeclaredConstructor().newInstance();
+        int i = 0;
+        for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(type)) {
+            Method writeMethod = pd.getWriteMethod();
+            if (writeMethod == null) {
+                continue;
+            }
+            i++;
+            Class<?> propertyType = writeMethod.getParameterTypes()[0];
+            Object value;
+            if (propertyType == Long.class) {
+                value = 100L + i;
+            } else if (propertyType == Integer.class || propertyType == int.class) {
+                value = i;
+            } else if (propertyType == String.class) {
+                value = pd.getName() + i;
+            } else if (propertyType == BigDecimal.class) {
+                value = new BigDecimal(i + ".50");
+            } else if (propertyType == LocalDateTime.class) {
+                value = LocalDateTime.of(2025, 1, 1, 12, 0).plusMinutes(i);
+            } else if (propertyType == List.class) {
+                value = new ArrayList<>();
+            } else {
+                throw new IllegalArgumentException("不支持的属性类型:" + propertyType);
+            }
+            writeMethod.invoke(bean, value);
+        }
+        return bean;
+    }
+
+    public static class GenericSource {
+        private List<Long> ids;
+        private List<String> names;
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public void setIds(List<Long> ids) {
+            this.ids = ids;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public void setNames(List<String> names) {
+            this.names = names;
+        }
+    }
+
+    public static class GenericTarget {
+        private List<String> ids;
+        private List<String> names;
+
+        public List<String> getIds() {
+            return ids;
+        }
+
+        public void setIds(List<String> ids) {
+            this.ids = ids;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public void setNames(List<String> names) {
+            this.names = names;
+        }
+    }
+
+    static class HiddenSource {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
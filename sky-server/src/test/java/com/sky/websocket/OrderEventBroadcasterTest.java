@@ -0,0 +1,122 @@
+package com.sky.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class OrderEventBroadcasterTest {
+
+    private static final String CHANNEL = "ws:order-event";
+
+    private StringRedisTemplate stringRedisTemplate;
+    // 模拟集群中的两个节点，共用一个redis频道
+    private final List<OrderEventBroadcaster> nodes = new ArrayList<>();
+    private final List<WebSocketServer> servers = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        // 代替redis频道：发布的消息投递给所有订阅的节点
+        doAnswer(invocation -> {
+            byte[] body = invocation.getArgument(1, String.class).getBytes(StandardCharsets.UTF_8);
+            for (OrderEventBroadcaster node : nodes) {
+                node.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body), null);
+            }
+            return 1L;
+        }).when(stringRedisTemplate).convertAndSend(eq(CHANNEL), anyString());
+
+        for (int i = 0; i < 2; i++) {
+            OrderEventBroadcaster node = new OrderEventBroadcaster();
+            WebSocketServer webSocketServer = mock(WebSocketServer.class);
+            ReflectionTestUtils.setField(node, "stringRedisTemplate", stringRedisTemplate);
+            ReflectionTestUtils.setField(node, "webSocketServer", webSocketServer);
+            nodes.add(node);
+            servers.add(webSocketServer);
+        }
+    }
+
+    /**
+     * 支付回调重试时同一订单的来单提醒被不同节点重复发布，每个节点只推送一次
+     */
+    @Test
+    public void duplicatePublishIsPushedOnce() {
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 100L, "new-100");
+        nodes.get(1).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 100L, "new-100");
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 100L, "new-100");
+        flush();
+
+        for (WebSocketServer webSocketServer : servers) {
+            verify(webSocketServer).sendToAllClient("new-100");
+            verifyNoMoreInteractions(webSocketServer);
+        }
+    }
+
+    /**
+     * 不同订单、同一订单的不同类型消息都会推送
+     */
+    @Test
+    public void distinctEventsArePushed() {
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 100L, "new-100");
+        nodes.get(1).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 101L, "new-101");
+        nodes.get(1).publish(OrderEventBroadcaster.TYPE_REMINDER, 100L, "reminder-100");
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_REMINDER, 100L, "reminder-100");
+        flush();
+
+        for (WebSocketServer webSocketServer : servers) {
+            verify(webSocketServer).sendToAllClient("new-100");
+            verify(webSocketServer).sendToAllClient("new-101");
+            verify(webSocketServer).sendToAllClient("reminder-100");
+            verifyNoMoreInteractions(webSocketServer);
+        }
+    }
+
+    /**
+     * 消息在下一次推送前到达的，攒批后一起推送；已推送过的消息再次到达时不再推送
+     */
+    @Test
+    public void duplicateAfterFlushIsIgnored() {
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_REMINDER, 100L, "reminder-100");
+        flush();
+        nodes.get(1).publish(OrderEventBroadcaster.TYPE_REMINDER, 100L, "reminder-100");
+        flush();
+
+        for (WebSocketServer webSocketServer : servers) {
+            verify(webSocketServer, times(1)).sendToAllClient("reminder-100");
+        }
+    }
+
+    /**
+     * redis不可用时只推送给本节点的客户端，同样去重
+     */
+    @Test
+    public void redisDownPushesLocally() {
+        doThrow(new RuntimeException("redis down")).when(stringRedisTemplate).convertAndSend(eq(CHANNEL), anyString());
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 100L, "new-100");
+        nodes.get(0).publish(OrderEventBroadcaster.TYPE_NEW_ORDER, 100L, "new-100");
+        flush();
+
+        verify(servers.get(0)).sendToAllClient("new-100");
+        verifyNoMoreInteractions(servers.get(0), servers.get(1));
+    }
+
+    private void flush() {
+        for (OrderEventBroadcaster node : nodes) {
+            ReflectionTestUtils.invokeMethod(node, "flush");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.sky.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WebSocketServerTest {
+
+    private final WebSocketServer webSocketServer = new WebSocketServer();
+    private final List<Client> clients = new ArrayList<>();
+
+    @BeforeEach
+    @AfterEach
+    public void clearSessions() {
+        ((Map<?, ?>) ReflectionTestUtils.getField(WebSocketServer.class, "sessionMap")).clear();
+    }
+
+    /**
+     * 数百个客户端中混有不返回发送结果的慢客户端和发送失败的客户端：
+     * 群发不被阻塞，发送失败的客户端在第一条消息后断开，慢客户端在队列积压后断开，正常客户端收到全部消息
+     */
+    @Test
+    public void evictsSlowAndFailingClients() {
+        for (int i = 0; i < 400; i++) {
+            clients.add(connect("fast-" + i, Mode.FAST));
+        }
+        for (int i = 0; i < 50; i++) {
+            clients.add(connect("slow-" + i, Mode.SLOW));
+        }
+        for (int i = 0; i < 50; i++) {
+            clients.add(connect("failing-" + i, Mode.FAILING));
+        }
+        long evicted = WebSocketMetrics.getEvicted();
+
+        int messages = 300;
+        for (int i = 0; i < messages; i++) {
+            webSocketServer.sendToAllClient("{\"type\":1,\"orderId\":" + i + "}");
+        }
+
+        assertEquals(400, webSocketServer.getSessionCount());
+        assertEquals(100, WebSocketMetrics.getEvicted() - evicted);
+        for (Client client : clients) {
+            switch (client.mode) {
+                case FAST:
+                    assertEquals(messages, client.sent.get());
+                    assertFalse(client.closed.get());
+                    break;
+                case SLOW:
+                    // 只有第一条消息在发送中，队列已满后连续丢弃超过上限
+                    assertEquals(1, client.sent.get());
+                    assertTrue(client.closed.get());
+                    break;
+                case FAILING:
+                    assertEquals(1, client.sent.get());
+                    assertTrue(client.closed.get());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 单条消息超过发送超时时间时，容器以超时异常回调发送结果，客户端随即断开，不需要等到队列积满
+     */
+    @Test
+    public void evictsOnSendTimeout() throws Exception {
+        Client slow = connect("slow", Mode.SLOW);
+        Client fast = connect("fast", Mode.FAST);
+        for (int i = 0; i < 5; i++) {
+            webSocketServer.sendToAllClient("message" + i);
+        }
+        assertEquals(2, webSocketServer.getSessionCount());
+        verify(slow.async).setSendTimeout(10 * 1000);
+
+        slow.pending.poll().onResult(new SendResult(new SocketTimeoutException("send timeout")));
+
+        assertEquals(1, webSocketServer.getSessionCount());
+        assertTrue(slow.closed.get());
+        ArgumentCaptor<CloseReason> reason = ArgumentCaptor.forClass(CloseReason.class);
+        verify(slow.session).close(reason.capture());
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, reason.getValue().getCloseCode());
+        // 超时后不再继续发送队列中剩余的消息
+        assertEquals(1, slow.sent.get());
+
+        webSocketServer.sendToAllClient("message5");
+        assertEquals(6, fast.sent.get());
+        assertFalse(fast.closed.get());
+    }
+
+    /**
+     * 慢客户端在超时前完成发送，继续发送积压的消息，不会被断开
+     */
+    @Test
+    public void slowClientCatchesUp() {
+        Client slow = connect("slow", Mode.SLOW);
+        for (int i = 0; i < 10; i++) {
+            webSocketServer.sendToAllClient("message" + i);
+        }
+        SendHandler handler;
+        while ((handler = slow.pending.poll()) != null) {
+            handler.onResult(new SendResult());
+        }
+        assertEquals(10, slow.sent.get());
+        assertEquals(1, webSocketServer.getSessionCount());
+        assertFalse(slow.closed.get());
+    }
+
+    /**
+     * 旧会话的关闭事件不影响同一个sid重新建立的连接
+     */
+    @Test
+    public void reconnectKeepsNewSession() throws Exception {
+        Client first = connect("admin", Mode.FAST);
+        Client second = connect("admin", Mode.FAST);
+        verify(first.session).close(any(CloseReason.class));
+        verify(second.session, never()).close(any(CloseReason.class));
+
+        webSocketServer.onClose(first.session, "admin");
+        webSocketServer.sendToAllClient("message");
+        assertEquals(1, webSocketServer.getSessionCount());
+        assertEquals(1, second.sent.get());
+        assertEquals(0, first.sent.get());
+    }
+
+    private Client connect(String sid, Mode mode) {
+        Client client = new Client(mode);
+        webSocketServer.onOpen(client.session, sid);
+        return client;
+    }
+
+    private enum Mode {
+        // 立即发送成功
+        FAST,
+        // 发送结果由测试回调，之前一直处于发送中
+        SLOW,
+        // 立即发送失败
+        FAILING
+    }
+
+    /**
+     * 模拟的客户端会话
+     */
+    private static class Client {
+
+        private final Mode mode;
+        private final Session session = mock(Session.class);
+        private final RemoteEndpoint.Async async = mock(RemoteEndpoint.Async.class);
+        private final AtomicInteger sent = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Queue<SendHandler> pending = new ConcurrentLinkedQueue<>();
+
+        Client(Mode mode) {
+            this.mode = mode;
+            when(session.getAsyncRemote()).thenReturn(async);
+            when(session.isOpen()).thenAnswer(invocation -> !closed.get());
+            try {
+                doAnswer(invocation -> {
+                    closed.set(true);
+                    return null;
+                }).when(session).close(any(CloseReason.class));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            doAnswer(invocation -> {
+                sent.incrementAndGet();
+                SendHandler handler = invocation.getArgument(1);
+                switch (mode) {
+                    case FAST:
+                        handler.onResult(new SendResult());
+                        break;
+                    case SLOW:
+                        pending.add(handler);
+                        break;
+                    case FAILING:
+                        handler.onResult(new SendResult(new SocketTimeoutException("connection reset")));
+                        break;
+                }
+                return null;
+            }).when(async).sendText(anyString(), any(SendHandler.class));
+        }
+    }
+}